@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import picocli.CommandLine;
+
+
+/**
+ * Benchmarks converting a single file end-to-end via the command line interface, i.e. including format detection,
+ * validation with FA³ST and writing the output file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDocuments.LOGBACK_CONFIGURATION)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AppBenchmark {
+
+    @Param({
+            "10",
+            "100"
+    })
+    public int shells;
+
+    @Param({
+            "SINGLE_PASS",
+            "JSON_PATH",
+            "STREAMING"
+    })
+    public String mode;
+
+    private Path directory;
+    private String[] args;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("benchmark");
+        File input = directory.resolve("input.json").toFile();
+        BenchmarkDocuments.generator(shells, 0).write(input);
+        String output = directory.resolve("output.json").toString();
+        args = "STREAMING".equals(mode)
+                ? new String[] {
+                        "-i",
+                        input.toString(),
+                        "-o",
+                        output,
+                        "--streaming"
+                }
+                : new String[] {
+                        "-i",
+                        input.toString(),
+                        "-o",
+                        output,
+                        "--engine",
+                        mode
+                };
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (File file: directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+
+    @Benchmark
+    public int convert() {
+        return new CommandLine(new App()).execute(args);
+    }
+}
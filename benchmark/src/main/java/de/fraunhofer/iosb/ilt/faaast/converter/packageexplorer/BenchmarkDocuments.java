@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+/**
+ * Sizes of the synthetic documents used by the benchmarks.
+ */
+final class BenchmarkDocuments {
+
+    static final String LOGBACK_CONFIGURATION = "-Dlogback.configurationFile=logback-benchmark.xml";
+    private static final int SUBMODELS_PER_SHELL = 4;
+    private static final int ELEMENTS_PER_SUBMODEL = 25;
+    private static final int CONCEPT_DESCRIPTIONS_PER_SHELL = 10;
+
+    private BenchmarkDocuments() {}
+
+
+    /**
+     * Creates a generator for a document with the given number of shells; all other counts scale accordingly.
+     *
+     * @param shells the number of shells
+     * @param seed the seed
+     * @return the generator
+     */
+    static SyntheticDocumentGenerator generator(int shells, long seed) {
+        return new SyntheticDocumentGenerator(shells, SUBMODELS_PER_SHELL, ELEMENTS_PER_SUBMODEL, shells * CONCEPT_DESCRIPTIONS_PER_SHELL, seed);
+    }
+}
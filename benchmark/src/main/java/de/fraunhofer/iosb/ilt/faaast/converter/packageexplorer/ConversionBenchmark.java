@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks the conversion of a whole document via {@link PackageExplorerConverter} for all engines and with the
+ * elements of a document converted in parallel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDocuments.LOGBACK_CONFIGURATION)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConversionBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @State(Scope.Benchmark)
+    public static class Document {
+
+        @Param({
+                "10",
+                "100"
+        })
+        public int shells;
+
+        private byte[] bytes;
+        private JsonNode tree;
+        private File file;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            bytes = BenchmarkDocuments.generator(shells, 0).toBytes();
+            tree = MAPPER.readTree(bytes);
+            file = Files.createTempFile("benchmark", ".json").toFile();
+            Files.write(file.toPath(), bytes);
+        }
+
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        @Param({
+                "SINGLE_PASS",
+                "JSON_PATH"
+        })
+        public ConversionEngine engine;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Parallelism {
+
+        @Param({
+                "1",
+                "4"
+        })
+        public int parallelism;
+
+        private PackageExplorerConverter converter;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            converter = PackageExplorerConverter.builder().parallelism(parallelism).build();
+        }
+
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            converter.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Tree {
+
+        private JsonNode tree;
+
+        @Setup(Level.Invocation)
+        public void setup(Document document) {
+            tree = document.tree.deepCopy();
+        }
+    }
+
+    @Benchmark
+    public JsonNode toFaaastTree(Tree tree, Engine engine) {
+        return PackageExplorerConverter.toFaaastTree(tree.tree, engine.engine);
+    }
+
+
+    @Benchmark
+    public JsonNode convertParallel(Tree tree, Parallelism parallelism) {
+        return parallelism.converter.convert(tree.tree);
+    }
+
+
+    @Benchmark
+    public void toFaaast(Document document, Engine engine) throws IOException {
+        PackageExplorerConverter.toFaaast(new ByteArrayInputStream(document.bytes), OutputStream.nullOutputStream(), engine.engine);
+    }
+
+
+    @Benchmark
+    public void toFaaastStreaming(Document document) throws IOException {
+        PackageExplorerConverter.toFaaast(document.file, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks the individual steps of the JsonPath-based conversion. Each step is applied to the output of all previous
+ * steps.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDocuments.LOGBACK_CONFIGURATION)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConversionStepBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Param({
+            "10",
+            "100"
+    })
+    public int shells;
+
+    @Param({
+            "REMOVE_EMPTY_KEYS",
+            "REMOVE_KEY_INDEX",
+            "REMOVE_KEY_LOCAL",
+            "REMOVE_VIEWS",
+            "CAPITALIZE_ENUM_VALUES",
+            "TRANSFORM_ASSETS",
+            "FLATTEN_VALUE_TYPE",
+            "FLATTEN_OPERATION_VARIABLES",
+            "FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE",
+            "FIX_EMBEDDED_DATA_SPECIFICATION_DATA_TYPE",
+            "ADD_MISSING_EMBEDDED_DATA_SPECIFICATION_TYPE"
+    })
+    public String step;
+
+    private PackageExplorerConverter.Step currentStep;
+    private JsonNode prepared;
+    private JsonNode input;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        currentStep = PackageExplorerConverter.Step.valueOf(step);
+        JsonNode document = MAPPER.readTree(BenchmarkDocuments.generator(shells, 0).toBytes());
+        for (PackageExplorerConverter.Step previous: PackageExplorerConverter.Step.values()) {
+            if (previous == currentStep) {
+                break;
+            }
+            document = PackageExplorerConverter.applyStep(document, previous);
+        }
+        prepared = document;
+    }
+
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        input = prepared.deepCopy();
+    }
+
+
+    @Benchmark
+    public JsonNode convertStep() {
+        return PackageExplorerConverter.applyStep(input, currentStep);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import io.adminshell.aas.v3.dataformat.DeserializationException;
+import io.adminshell.aas.v3.dataformat.SerializationException;
+import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks merging converted environments in memory and out-of-core. Environments are generated with alternating
+ * seeds so half of them contain identical identifiables and the other half conflicting ones.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDocuments.LOGBACK_CONFIGURATION)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MergeBenchmark {
+
+    @Param({
+            "2",
+            "10"
+    })
+    public int files;
+
+    @Param({
+            "10"
+    })
+    public int shells;
+
+    private final List<AssetAdministrationShellEnvironment> environments = new ArrayList<>();
+    private final List<File> convertedFiles = new ArrayList<>();
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, DeserializationException, SerializationException {
+        directory = Files.createTempDirectory("benchmark");
+        for (int i = 0; i < files; i++) {
+            AssetAdministrationShellEnvironment environment = PackageExplorerConverter.toFaaastEnvironment(
+                    new ByteArrayInputStream(BenchmarkDocuments.generator(shells, i % 2).toBytes()),
+                    ConversionEngine.SINGLE_PASS);
+            File file = directory.resolve(i + ".json").toFile();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                new StreamingJsonSerializer().write(out, environment);
+            }
+            environments.add(environment);
+            convertedFiles.add(file);
+        }
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (File file: convertedFiles) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+
+    @Benchmark
+    public AssetAdministrationShellEnvironment merge() {
+        EnvironmentMerger merger = new EnvironmentMerger();
+        environments.forEach(merger::add);
+        return merger.build();
+    }
+
+
+    @Benchmark
+    public void mergeStreaming() throws IOException {
+        try (StreamingEnvironmentMerger merger = new StreamingEnvironmentMerger()) {
+            for (File file: convertedFiles) {
+                merger.add(file);
+            }
+            merger.write(OutputStream.nullOutputStream());
+        }
+    }
+}
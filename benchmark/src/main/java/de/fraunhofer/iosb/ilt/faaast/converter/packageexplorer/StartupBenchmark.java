@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks the wall time of converting a single small file in a new process, i.e. including JVM startup and class
+ * loading. Compares the plain jar, the jar with the class data sharing archive created by profile {@code cds}, and the
+ * native executable created by profile {@code native}. The artifacts are looked up in {@link #target}, which defaults to
+ * the {@code target} folder of the converter when running the benchmarks from the project root. The jar is
+ * {@link #jar} if set, otherwise the jar of the converter version the benchmarks have been built with.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+public class StartupBenchmark {
+
+    private static final String ARTIFACT_PREFIX = "package-explorer-converter";
+    private static final String PROPERTIES = "/startup-benchmark.properties";
+    private static final String PROPERTY_CONVERTER_JAR = "converter.jar";
+
+    @Param({
+            "JAR",
+            "CDS",
+            "NATIVE"
+    })
+    public String launcher;
+
+    @Param("target")
+    public String target;
+
+    @Param("")
+    public String jar;
+
+    private Path directory;
+    private List<String> command;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("benchmark");
+        File input = directory.resolve("input.json").toFile();
+        BenchmarkDocuments.generator(1, 0).write(input);
+        command = new ArrayList<>(launcherCommand());
+        command.addAll(Arrays.asList(
+                "-i",
+                input.toString(),
+                "-o",
+                directory.resolve("output.json").toString()));
+    }
+
+
+    private List<String> launcherCommand() throws IOException {
+        if ("NATIVE".equals(launcher)) {
+            return List.of(existing(new File(target, ARTIFACT_PREFIX), "native")
+                    .getAbsolutePath());
+        }
+        File jar = new File(target, this.jar.isEmpty() ? converterJarName() : this.jar);
+        if (!jar.isFile()) {
+            throw new IllegalStateException(String.format("converter jar %s not found - run 'mvn package' first", jar));
+        }
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        if ("CDS".equals(launcher)) {
+            File archive = new File(jar.getPath().replaceFirst("\\.jar$", ".jsa"));
+            return List.of(java, "-XX:SharedArchiveFile=" + existing(archive, "cds").getAbsolutePath(), "-jar", jar.getAbsolutePath());
+        }
+        return List.of(java, "-jar", jar.getAbsolutePath());
+    }
+
+
+    private static String converterJarName() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = StartupBenchmark.class.getResourceAsStream(PROPERTIES)) {
+            if (input == null) {
+                throw new IllegalStateException(String.format("%s not found - set the converter jar via parameter 'jar'", PROPERTIES));
+            }
+            properties.load(input);
+        }
+        return properties.getProperty(PROPERTY_CONVERTER_JAR);
+    }
+
+
+    private static File existing(File file, String profile) {
+        if (!file.exists()) {
+            throw new IllegalStateException(String.format("%s not found - run 'mvn package -P %s' first", file, profile));
+        }
+        return file;
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file: (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+
+    @Benchmark
+    public int convert() throws IOException, InterruptedException {
+        int exitCode = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start()
+                .waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException(String.format("conversion failed with exit code %d (command: %s)", exitCode, String.join(" ", command)));
+        }
+        return exitCode;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+
+/**
+ * Reads the AAS JSON part of an AASX package (Open Packaging Conventions, i.e. a ZIP file). The part is located via
+ * the package relationships ({@code /_rels/.rels} → aasx-origin → aas-spec) and read directly from the ZIP file
+ * without extracting it.
+ */
+class AasxPackage implements ConversionInput {
+
+    static final String FILE_EXTENSION = ".aasx";
+    private static final String RELATIONSHIP_TYPE_ORIGIN = "http://www.admin-shell.io/aasx/relationships/aasx-origin";
+    private static final String RELATIONSHIP_TYPE_SPEC = "http://www.admin-shell.io/aasx/relationships/aas-spec";
+    private static final String PACKAGE_RELATIONSHIPS = "/_rels/.rels";
+    private static final String JSON_FILE_EXTENSION = ".json";
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+    private final ZipFile zipFile;
+    private final String partName;
+    private final ZipEntry part;
+
+    /**
+     * Opens an AASX package and locates its AAS JSON part.
+     *
+     * @param file the AASX file
+     * @throws IOException if the file cannot be read, is not a valid AASX package, or does not contain an AAS JSON part
+     */
+    AasxPackage(File file) throws IOException {
+        zipFile = new ZipFile(file);
+        try {
+            String origin = findTargets(PACKAGE_RELATIONSHIPS, RELATIONSHIP_TYPE_ORIGIN).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new IOException(String.format("AASX package does not contain an aasx-origin relationship (file: %s)", file)));
+            List<String> specs = findTargets(relationshipsOf(origin), RELATIONSHIP_TYPE_SPEC);
+            Optional<String> json = specs.stream()
+                    .filter(x -> x.toLowerCase(Locale.ROOT).endsWith(JSON_FILE_EXTENSION))
+                    .findFirst();
+            if (json.isEmpty()) {
+                throw new IOException(String.format("AASX package does not contain an AAS in JSON format (file: %s, found parts: %s)", file, specs));
+            }
+            partName = json.get();
+            part = entry(partName);
+            if (part == null) {
+                throw new IOException(String.format("AAS JSON part referenced by AASX package does not exist (file: %s, part: %s)", file, partName));
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            zipFile.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Checks whether a file is an AASX package based on its name.
+     *
+     * @param fileName the file name
+     * @return true if the file name has the extension {@code .aasx}, otherwise false
+     */
+    static boolean isAasx(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(FILE_EXTENSION);
+    }
+
+
+    /**
+     * Gets the name of the AAS JSON part inside the package.
+     *
+     * @return the absolute part name
+     */
+    String getPartName() {
+        return partName;
+    }
+
+
+    @Override
+    public InputStream open() throws IOException {
+        return zipFile.getInputStream(part);
+    }
+
+
+    @Override
+    public long getSize() {
+        return part.getSize();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+
+
+    private List<String> findTargets(String relationshipsPart, String type) throws IOException {
+        List<String> result = new ArrayList<>();
+        ZipEntry entry = entry(relationshipsPart);
+        if (entry == null) {
+            return result;
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamReader.START_ELEMENT
+                            && "Relationship".equals(reader.getLocalName())
+                            && type.equals(reader.getAttributeValue(null, "Type"))
+                            && !"External".equals(reader.getAttributeValue(null, "TargetMode"))) {
+                        result.add(resolve(relationshipsPart, reader.getAttributeValue(null, "Target")));
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException e) {
+            throw new IOException(String.format("error reading package relationships (part: %s)", relationshipsPart), e);
+        }
+        return result;
+    }
+
+
+    /**
+     * Resolves the target of a relationship to an absolute part name. Relative targets are resolved against the folder
+     * of the source part, i.e. the parent folder of the {@code _rels} folder containing the relationships part.
+     */
+    private static String resolve(String relationshipsPart, String target) throws IOException {
+        String sourceFolder = relationshipsPart.substring(0, relationshipsPart.lastIndexOf("/_rels/") + 1);
+        try {
+            return new URI(null, null, sourceFolder, null).resolve(new URI(target)).getPath();
+        }
+        catch (URISyntaxException e) {
+            throw new IOException(String.format("invalid relationship target (part: %s, target: %s)", relationshipsPart, target), e);
+        }
+    }
+
+
+    private static String relationshipsOf(String partName) {
+        int index = partName.lastIndexOf('/');
+        return partName.substring(0, index + 1) + "_rels/" + partName.substring(index + 1) + ".rels";
+    }
+
+
+    /**
+     * Gets the ZIP entry of a part. Part names are absolute and case-insensitive while ZIP entry names are relative and
+     * case-sensitive.
+     */
+    private ZipEntry entry(String partName) {
+        String name = partName.startsWith("/")
+                ? partName.substring(1)
+                : partName;
+        ZipEntry result = zipFile.getEntry(name);
+        if (result != null) {
+            return result;
+        }
+        return zipFile.stream()
+                .filter(x -> x.getName().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory result = XMLInputFactory.newInstance();
+        result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return result;
+    }
+}
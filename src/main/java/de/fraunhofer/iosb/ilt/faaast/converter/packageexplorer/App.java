@@ -18,53 +18,90 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.filter.LevelFilter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.ConsoleAppender;
 import ch.qos.logback.core.spi.FilterReply;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.adminshell.aas.v3.dataformat.DeserializationException;
 import io.adminshell.aas.v3.dataformat.SerializationException;
-import io.adminshell.aas.v3.dataformat.json.JsonDeserializer;
-import io.adminshell.aas.v3.dataformat.json.JsonSerializer;
 import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
-import io.adminshell.aas.v3.model.impl.DefaultAssetAdministrationShellEnvironment;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.function.Function;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.script.ScriptException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
 
 
-@CommandLine.Command(name = "FA³ST Package Explorer JSON Converter", mixinStandardHelpOptions = true, description = "Converts AAS JSON files exported with Package Explorer to a FA³ST-compatible version.", version = "0.0.1-SNAPSHOT", usageHelpAutoWidth = true)
+@CommandLine.Command(name = "FA³ST Package Explorer JSON Converter", mixinStandardHelpOptions = true, description = "Converts AAS JSON files exported with Package Explorer to a FA³ST-compatible version.", version = "0.0.1-SNAPSHOT", usageHelpAutoWidth = true, subcommands = ConversionServer.class)
 public class App implements Callable<Integer> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(App.class);
     private static final String JSON_FILE_EXTENSION = ".json";
-    private static final String MERGE_FILE_NAME = "merged" + JSON_FILE_EXTENSION;
+    private static final String MERGE_FILE_BASE_NAME = "merged";
+    private static final String MERGE_FILE_NAME = MERGE_FILE_BASE_NAME + JSON_FILE_EXTENSION;
+    private static final int MAX_PENDING_FILES_PER_THREAD = 2;
+    private static final int WATCH_REPORT_FILE_LIMIT = 1000;
+    private static final String STANDARD_STREAM = "-";
+    private static final String CONSOLE_TARGET_STANDARD_ERROR = "System.err";
+    private static final int BUFFER_SIZE = 65536;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int EXIT_CODE_CONVERSION_REQUIRED = 3;
+    private static final int EXIT_CODE_WARNINGS = 4;
+    private static final Map<String, String> CHECK_WARNINGS = Map.of(
+            ConversionMetrics.WARNING_EMPTY_KEY, "keys with empty type, value, and/or idType would be removed",
+            ConversionMetrics.WARNING_INVALID_ID_TYPE, "invalid idType values would be replaced with default",
+            ConversionMetrics.WARNING_MISSING_DATA_TYPE, "embeddedDataSpecifications without datatype would be set to 'String'");
 
     @Option(names = {
             "-i",
             "--input"
-    }, description = "Input file or directory", required = true)
+    }, description = "Input file or directory containing JSON files and/or AASX packages, or '" + STANDARD_STREAM + "' to read from standard input "
+            + "(required unless using a subcommand)")
     private File input = null;
 
     @Option(names = {
             "-o",
             "--output"
-    }, description = "Output file or directory")
+    }, description = "Output file or directory, or '" + STANDARD_STREAM + "' to write to standard output. If omitted, the result is written to standard "
+            + "output as well. When writing to standard output, log messages are written to standard error")
     private File output = null;
 
     @Option(names = {
@@ -80,6 +117,109 @@ public class App implements Callable<Integer> {
             + "' additionally to converting each file seperately (only applicable if input contains multiple files)")
     private boolean merge;
 
+    @Option(names = "--engine", defaultValue = "SINGLE_PASS", description = "Engine used for conversion, valid values: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private ConversionEngine engine;
+
+    @Option(names = "--streaming", description = "Convert files without loading them into memory. Significantly reduces memory usage for large files but does not test the result with FA³ST. Files that do not contain any Package Explorer-specific elements are tested with FA³ST and copied as-is if valid. When merging, the converted files are merged without loading them into memory")
+    private boolean streaming;
+
+    @Option(names = "--threads", defaultValue = "1", description = "Number of files to convert in parallel when input is a directory; requires an output directory "
+            + "unless using --check (default: ${DEFAULT-VALUE})")
+    private int threads;
+
+    @Option(names = "--element-threads", defaultValue = "1", description = "Number of threads used to convert the shells, submodels and concept descriptions "
+            + "of a single file in parallel. Useful for large files with many elements; the result is the same as when converting sequentially (only supported "
+            + "by engine SINGLE_PASS without --streaming and --journal, default: ${DEFAULT-VALUE})")
+    private int elementThreads;
+
+    @Option(names = "--incremental", description = "Only convert files in the input directory that have changed since the last run with the same output directory. "
+            + "Conversion state is stored in the file '" + BatchManifest.FILE_NAME + "' in the output directory ('" + BatchManifest.FILE_NAME
+            + ".<index>-of-<count>' when using --shard)")
+    private boolean incremental;
+
+    @Option(names = "--report", description = "Write a JSON report to the given file containing the duration of each processing stage, how often each conversion rule "
+            + "has been applied, how often information has been removed or replaced with default values, and the number of bytes read and written for each file "
+            + "and in total. The duration of each conversion rule is only reported with engine JSON_PATH")
+    private File report;
+
+    @Option(names = "--watch", description = "Keep running after converting the input directory and convert JSON files in the input directory as soon as they are "
+            + "created or modified. When merging, '" + MERGE_FILE_NAME + "' is updated after each file as long as all files have been converted successfully. The report only "
+            + "lists the last " + WATCH_REPORT_FILE_LIMIT + " files")
+    private boolean watch;
+
+    @Option(names = "--watch-delay", defaultValue = "500", description = "Time in milliseconds a file must remain unchanged before it is converted in watch mode "
+            + "(default: ${DEFAULT-VALUE})")
+    private long watchDelay;
+
+    @Option(names = "--gzip", description = "Compress the output with gzip (only applicable when converting a single file)")
+    private boolean gzip;
+
+    @Option(names = "--split", description = "Write each shell, submodel and concept description to its own file in a directory named like the output file without "
+            + "extension, together with an index file '" + SplitOutputWriter.INDEX_FILE_NAME + "' listing identifier, type, file and content hash of each. File names "
+            + "are derived from a hash of the identifier and files are only rewritten if their content has changed (not supported with --streaming, --incremental "
+            + "and --gzip)")
+    private boolean split;
+
+    @Option(names = {
+            "-r",
+            "--recursive"
+    }, description = "Include files in subdirectories of the input directory. The directory structure is preserved in the output directory")
+    private boolean recursive;
+
+    @Option(names = "--include", paramLabel = "<glob>", description = "Only convert files matching the given glob pattern, e.g. '*.aas.json' or '2023/**'. "
+            + "Patterns without '/' are matched against the file name, other patterns against the path relative to the input directory. Can be repeated")
+    private List<String> includes = new ArrayList<>();
+
+    @Option(names = "--exclude", paramLabel = "<glob>", description = "Skip files and directories matching the given glob pattern (same syntax as --include). "
+            + "Can be repeated")
+    private List<String> excludes = new ArrayList<>();
+
+    @Option(names = "--shard", paramLabel = "<index>/<count>", converter = Shard.Converter.class, description = "Only convert the files belonging to the given "
+            + "shard, e.g. '2/4'. Files are assigned to shards based on a hash of their path relative to the input directory, so running all shards with the "
+            + "same input covers each file exactly once. When merging, each shard writes its own file '" + MERGE_FILE_BASE_NAME + ".<index>-of-<count>"
+            + JSON_FILE_EXTENSION + "'")
+    private Shard shard;
+
+    @Option(names = "--journal", description = "Write a change journal to the given file containing one JSON record per change with the file, the rule, the JSON "
+            + "pointer of the changed node and its value before and after the change. Records are written in the background and values are truncated after "
+            + ChangeJournal.DEFAULT_MAX_VALUE_LENGTH + " characters (only supported by engine SINGLE_PASS)")
+    private File journalFile;
+
+    @Option(names = "--journal-sample", paramLabel = "[<rule>=]<n>", description = "Only record every n-th change of each rule in each file, or of the given rule "
+            + "if specified, e.g. '10' or 'REMOVE_KEY_INDEX=100'. Can be repeated (default: 1)")
+    private List<String> journalSamples = new ArrayList<>();
+
+    @Option(names = "--journal-limit", defaultValue = "" + ChangeJournal.DEFAULT_LIMIT, description = "Maximum number of records per rule and file in the change "
+            + "journal (default: ${DEFAULT-VALUE})")
+    private int journalLimit;
+
+    @Option(names = "--journal-max-size", defaultValue = "100", description = "Maximum size of the change journal in MB; further records are dropped "
+            + "(default: ${DEFAULT-VALUE})")
+    private long journalMaxSize;
+
+    @Option(names = "--check", description = "Only check which conversion rules would modify the input without converting it or writing any output. Each file is "
+            + "read once without loading it into memory. Exits with code 0 if no file needs to be converted, " + EXIT_CODE_CONVERSION_REQUIRED + " if files need to be "
+            + "converted, " + EXIT_CODE_WARNINGS + " if converting would remove information or replace it with default values, and 1 if files could not be read")
+    private boolean check;
+
+    @Option(names = "--check-references", description = "After converting, check that all references to shells, submodels, concept descriptions and their "
+            + "elements can be resolved. When converting a directory, references are resolved against all converted files. Unresolved and ambiguous references "
+            + "are logged with file and JSON pointer")
+    private boolean checkReferences;
+
+    @Spec
+    private CommandSpec spec;
+
+    private BatchManifest manifest;
+    private final BatchReport batchReport = new BatchReport();
+    private final Map<String, File> watchedOutputs = new LinkedHashMap<>();
+    private final Set<String> watchedFailures = new LinkedHashSet<>();
+    private Map<String, Integer> reportedDuplicates = Map.of();
+    private InputDiscovery discovery;
+    private ChangeJournal journal;
+    private PackageExplorerConverter converter;
+    private ReferenceChecker referenceChecker;
+
     public static void main(String[] args) throws ScriptException, DeserializationException, SerializationException {
         int exitCode = new CommandLine(new App()).execute(args);
         System.exit(exitCode);
@@ -90,21 +230,104 @@ public class App implements Callable<Integer> {
         if (merge) {
             LOGGER.warn("Merging not supported when converting single file - command will be ignored");
         }
-        return convert(input, output) != null ? 0 : 1;
+        if (incremental) {
+            LOGGER.warn("Incremental mode not supported when converting single file - command will be ignored");
+        }
+        if (watch) {
+            LOGGER.error("Watch mode requires an input directory");
+            return 1;
+        }
+        ConversionReport fileReport = new ConversionReport(input.getName());
+        boolean success = streaming
+                ? convertStreaming(input, output, fileReport)
+                : convert(input, output, fileReport) != null;
+        fileReport.setSuccess(success);
+        batchReport.add(fileReport);
+        checkReferences();
+        writeReport();
+        return success ? 0 : 1;
+    }
+
+
+    private void writeReport() {
+        if (report == null) {
+            return;
+        }
+        try {
+            batchReport.write(report);
+            LOGGER.info("Report written to {}", report);
+        }
+        catch (IOException e) {
+            LOGGER.warn("Error writing report", e);
+        }
+    }
+
+
+    /**
+     * Gets the name of the merge file. Each shard writes a merge file of its own so that shards converting to the same
+     * directory do not replace each other's results.
+     */
+    private String mergeFileName() {
+        return shard != null
+                ? MERGE_FILE_BASE_NAME + "." + shard.getFileName() + JSON_FILE_EXTENSION
+                : MERGE_FILE_NAME;
+    }
+
+
+    private static long since(long start) {
+        return System.nanoTime() - start;
+    }
+
+
+    private static boolean isStandardStream(File file) {
+        return file != null && STANDARD_STREAM.equals(file.getPath());
+    }
+
+
+    /**
+     * Checks whether the conversion result is written to standard output, i.e. output is '-' or omitted.
+     */
+    private boolean isResultOnStandardOutput() {
+        return isStandardStream(output) || (output == null && !check);
+    }
+
+
+    /**
+     * Opens standard input. Input compressed with gzip is detected and decompressed automatically.
+     */
+    private static InputStream openStandardInput() throws IOException {
+        InputStream result = new BufferedInputStream(System.in, BUFFER_SIZE);
+        result.mark(2);
+        int magic = result.read() | (result.read() << 8);
+        result.reset();
+        return magic == GZIPInputStream.GZIP_MAGIC
+                ? new GZIPInputStream(result, BUFFER_SIZE)
+                : result;
     }
 
 
-    private boolean output(AssetAdministrationShellEnvironment env, File outputFile) {
+    /**
+     * Opens the output, i.e. standard output if outputFile is null or '-', otherwise the file.
+     */
+    private OutputStream openOutput(File outputFile) throws IOException {
+        OutputStream result = new BufferedOutputStream(
+                outputFile == null || isStandardStream(outputFile)
+                        ? new StandardOutputStream()
+                        : new FileOutputStream(outputFile),
+                BUFFER_SIZE);
+        return gzip
+                ? new GZIPOutputStream(result, BUFFER_SIZE)
+                : result;
+    }
+
+
+    private boolean output(AssetAdministrationShellEnvironment env, File outputFile, ConversionMetrics metrics) {
+        boolean toFile = outputFile != null && !isStandardStream(outputFile);
         if (outputFile == null) {
             LOGGER.info("");
-            try {
-                LOGGER.info("Result: \n{}", new JsonSerializer().write(env));
-            }
-            catch (SerializationException e) {
-                LOGGER.error("Serialization with FA³ST failed", e);
-            }
+            LOGGER.info("Result:");
         }
-        else {
+        if (toFile) {
             File path = outputFile.getParentFile();
             if (path != null && !path.exists()) {
                 if (!path.mkdirs()) {
@@ -112,38 +335,92 @@ public class App implements Callable<Integer> {
                     return false;
                 }
             }
-            try {
-                new JsonSerializer().write(outputFile, env);
-            }
-            catch (IOException | SerializationException e) {
-                LOGGER.error("Error writing to output file", e);
-                return false;
-            }
+        }
+        if (split && toFile) {
+            return outputSplit(env, outputFile, metrics);
+        }
+        long start = System.nanoTime();
+        try (OutputStream out = openOutput(outputFile)) {
+            new StreamingJsonSerializer().write(out, env);
+        }
+        catch (IOException | SerializationException e) {
+            LOGGER.error("Error writing output", e);
+            return false;
+        }
+        metrics.stage(ConversionMetrics.STAGE_SERIALIZE, since(start));
+        if (toFile) {
+            metrics.bytesWritten(outputFile.length());
             LOGGER.info("Output written to {}", outputFile);
         }
         return true;
     }
 
 
-    private AssetAdministrationShellEnvironment convert(File inputFile, File outputFile) {
+    private static boolean outputSplit(AssetAdministrationShellEnvironment env, File outputFile, ConversionMetrics metrics) {
+        String name = outputFile.getName();
+        File directory = name.toLowerCase().endsWith(JSON_FILE_EXTENSION)
+                ? new File(outputFile.getParentFile(), name.substring(0, name.length() - JSON_FILE_EXTENSION.length()))
+                : outputFile;
+        SplitOutputWriter writer = new SplitOutputWriter(directory);
+        long start = System.nanoTime();
+        try {
+            writer.write(env);
+        }
+        catch (IOException | SerializationException e) {
+            LOGGER.error("Error writing output", e);
+            return false;
+        }
+        metrics.stage(ConversionMetrics.STAGE_SERIALIZE, since(start));
+        metrics.bytesWritten(writer.getBytesWritten());
+        LOGGER.info("Output written to {} ({} files written, {} unchanged, {} deleted)", directory, writer.getWritten(), writer.getUnchanged(), writer.getDeleted());
+        return true;
+    }
+
+
+    private AssetAdministrationShellEnvironment convert(File inputFile, File outputFile, ConversionReport fileReport) {
         LOGGER.info("Input file: {}", inputFile);
         if (outputFile != null) {
             LOGGER.info("Output file: {}", outputFile);
         }
         LOGGER.info("");
-        AssetAdministrationShellEnvironment aasConverted = null;
-        try {
-            aasConverted = new JsonDeserializer().read(inputFile);
-            LOGGER.info("File is already FA³ST-compliant");
-        }
-        catch (DeserializationException | FileNotFoundException e) {
-            // ignore
-        }
-        if (aasConverted == null) {
-            LOGGER.info("Converting file...");
-            String converted = "";
+        FormatDetector.Result format;
+        JsonNode document;
+        CanonicalNodeFactory nodeFactory = new CanonicalNodeFactory();
+        if (isStandardStream(inputFile)) {
             try {
-                converted = new String(PackageExplorerConverter.toFaaast(new FileInputStream(inputFile)).readAllBytes(), StandardCharsets.UTF_8);
+                long start = System.nanoTime();
+                try (JsonParser parser = MAPPER.getFactory().createParser(openStandardInput())) {
+                    document = MAPPER.reader().with(nodeFactory).readTree(parser);
+                    fileReport.bytesRead(Math.max(parser.getCurrentLocation().getByteOffset(), 0));
+                }
+                fileReport.stage(ConversionMetrics.STAGE_PARSE, since(start));
+                if (document == null) {
+                    LOGGER.error("Standard input is empty");
+                    return null;
+                }
+                start = System.nanoTime();
+                format = FormatDetector.detect(document);
+                fileReport.stage(ConversionMetrics.STAGE_DETECT, since(start));
+                LOGGER.info("Detected input format: {}", format);
+            }
+            catch (IOException e) {
+                LOGGER.error("Error reading standard input", e);
+                return null;
+            }
+        }
+        else {
+            try (ConversionInput source = open(inputFile)) {
+                long start = System.nanoTime();
+                try (InputStream in = source.open()) {
+                    document = MAPPER.reader().with(nodeFactory).readTree(in);
+                }
+                fileReport.stage(ConversionMetrics.STAGE_PARSE, since(start));
+                fileReport.bytesRead(source.getSize());
+                // the document is parsed anyway, so detect the format from the tree instead of reading the file twice
+                start = System.nanoTime();
+                format = FormatDetector.detect(document);
+                fileReport.stage(ConversionMetrics.STAGE_DETECT, since(start));
+                LOGGER.info("Detected input format: {}", format);
             }
             catch (FileNotFoundException e) {
                 LOGGER.error("Input file not found", e);
@@ -153,110 +430,626 @@ public class App implements Callable<Integer> {
                 LOGGER.error("Error reading input file", e);
                 return null;
             }
+        }
+        AssetAdministrationShellEnvironment aasConverted = null;
+        if (format.getFormat() == InputFormat.FAAAST) {
+            long start = System.nanoTime();
+            try {
+                aasConverted = new JsonTreeDeserializer().read(document);
+                LOGGER.info("File is already FA³ST-compliant");
+                addReferences(fileReport, document);
+            }
+            catch (DeserializationException e) {
+                LOGGER.info("File could not be deserialized using FA³ST although no Package Explorer-specific elements were found");
+            }
+            fileReport.stage(ConversionMetrics.STAGE_VALIDATE, since(start));
+        }
+        if (aasConverted == null) {
+            LOGGER.info("Converting file...");
+            long start = System.nanoTime();
+            JsonNode converted = converter.convert(document, fileReport, recorder(fileReport));
+            fileReport.stage(ConversionMetrics.STAGE_CONVERT, since(start));
             LOGGER.info("Testing deserialization with FA³ST...");
+            start = System.nanoTime();
             try {
-                aasConverted = new JsonDeserializer().read(converted);
+                aasConverted = new JsonTreeDeserializer().read(converted);
+                addReferences(fileReport, converted);
             }
             catch (DeserializationException e) {
                 LOGGER.warn("Conversion result could not be deserialized using FA³ST", e);
                 return null;
             }
+            fileReport.stage(ConversionMetrics.STAGE_VALIDATE, since(start));
             LOGGER.info("Conversion successfully finished");
         }
-        return output(aasConverted, outputFile)
+        nodeFactory.reportTo(fileReport);
+        return output(aasConverted, outputFile, fileReport)
                 ? aasConverted
                 : null;
     }
 
 
-    private Integer convertBatch() {
-        LOGGER.info("Scanning input directory '{}' for JSON files...:", input);
-        File[] inputFiles = input.listFiles((File file, String name) -> name.endsWith(JSON_FILE_EXTENSION));
-        LOGGER.info("Found {} files in input directory:{}{}",
+    private boolean convertStreaming(File inputFile, File outputFile, ConversionReport fileReport) {
+        LOGGER.info("Input file: {}", inputFile);
+        if (outputFile == null) {
+            LOGGER.error("Streaming mode requires an output file");
+            return false;
+        }
+        LOGGER.info("Output file: {}", outputFile);
+        LOGGER.info("");
+        boolean toFile = !isStandardStream(outputFile);
+        File path = outputFile.getParentFile();
+        if (toFile && path != null && !path.exists() && !path.mkdirs()) {
+            LOGGER.error("path '{}' could not be created", path);
+            return false;
+        }
+        try (ConversionInput source = open(inputFile);
+                OutputStream out = openOutput(outputFile)) {
+            long start = System.nanoTime();
+            FormatDetector.Result format;
+            try (InputStream in = source.open()) {
+                format = FormatDetector.detect(in);
+            }
+            fileReport.stage(ConversionMetrics.STAGE_DETECT, since(start));
+            LOGGER.info("Detected input format: {}", format);
+            fileReport.bytesRead(source.getSize());
+            if (format.getFormat() == InputFormat.FAAAST && isFaaastCompliant(source, fileReport)) {
+                start = System.nanoTime();
+                LOGGER.info("File is already FA³ST-compliant - copying file");
+                try (InputStream in = source.open()) {
+                    in.transferTo(out);
+                }
+                fileReport.stage(ConversionMetrics.STAGE_SERIALIZE, since(start));
+            }
+            else {
+                start = System.nanoTime();
+                LOGGER.info("Converting file (streaming)...");
+                PackageExplorerConverter.toFaaast(source, out, fileReport, recorder(fileReport));
+                fileReport.stage(ConversionMetrics.STAGE_CONVERT, since(start));
+                LOGGER.info("Conversion successfully finished");
+            }
+        }
+        catch (IOException e) {
+            LOGGER.error("Error converting file", e);
+            return false;
+        }
+        if (toFile) {
+            fileReport.bytesWritten(outputFile.length());
+            LOGGER.info("Output written to {}", outputFile);
+            addReferences(fileReport.getFile(), outputFile);
+        }
+        else if (referenceChecker != null) {
+            LOGGER.warn("References can not be checked when writing to standard output in streaming mode");
+        }
+        return true;
+    }
+
+
+    private static boolean isFaaastCompliant(ConversionInput source, ConversionReport fileReport) throws IOException {
+        long start = System.nanoTime();
+        try (InputStream in = source.open()) {
+            new JsonTreeDeserializer().read(MAPPER.readTree(in));
+            return true;
+        }
+        catch (DeserializationException e) {
+            LOGGER.info("File could not be deserialized using FA³ST although no Package Explorer-specific elements were found");
+            return false;
+        }
+        finally {
+            fileReport.stage(ConversionMetrics.STAGE_VALIDATE, since(start));
+        }
+    }
+
+
+    private void addReferences(ConversionReport fileReport, JsonNode document) {
+        if (referenceChecker != null) {
+            long start = System.nanoTime();
+            referenceChecker.add(fileReport.getFile(), document);
+            fileReport.stage(ConversionMetrics.STAGE_REFERENCES, since(start));
+        }
+    }
+
+
+    private void addReferences(String name, File outputFile) {
+        if (referenceChecker == null) {
+            return;
+        }
+        try (InputStream input = gzip
+                ? new GZIPInputStream(new FileInputStream(outputFile), BUFFER_SIZE)
+                : new FileInputStream(outputFile)) {
+            referenceChecker.add(name, input);
+        }
+        catch (IOException e) {
+            LOGGER.warn("Error reading references from output file {}", outputFile, e);
+        }
+    }
+
+
+    /**
+     * Resolves the references of all files converted so far and logs unresolved and ambiguous references.
+     */
+    private void checkReferences() {
+        if (referenceChecker == null) {
+            return;
+        }
+        LOGGER.info("Checking references...");
+        long start = System.nanoTime();
+        List<ReferenceChecker.Issue> issues = referenceChecker.check();
+        batchReport.getMetrics().stage(ConversionMetrics.STAGE_REFERENCES, since(start));
+        issues.forEach(x -> LOGGER.warn("{}", x));
+        long ambiguous = issues.stream().filter(x -> x.getType() == ReferenceChecker.IssueType.AMBIGUOUS).count();
+        batchReport.getMetrics().warning(ConversionMetrics.WARNING_UNRESOLVED_REFERENCE, issues.size() - ambiguous);
+        batchReport.getMetrics().warning(ConversionMetrics.WARNING_AMBIGUOUS_REFERENCE, ambiguous);
+        LOGGER.info("Checked {} references: {} unresolved, {} ambiguous", referenceChecker.getReferenceCount(), issues.size() - ambiguous, ambiguous);
+    }
+
+
+    private static ConversionInput open(File inputFile) throws IOException {
+        if (isStandardStream(inputFile)) {
+            LOGGER.info("Copying standard input to temporary file (required for streaming mode)");
+            return ConversionInput.spool(openStandardInput());
+        }
+        ConversionInput result = ConversionInput.of(inputFile);
+        if (result instanceof AasxPackage) {
+            LOGGER.info("Reading AAS from package part '{}'", ((AasxPackage) result).getPartName());
+        }
+        return result;
+    }
+
+
+    private static boolean isInputFile(String fileName) {
+        return fileName.endsWith(JSON_FILE_EXTENSION) || AasxPackage.isAasx(fileName);
+    }
+
+
+    /**
+     * Gets the path of an input file relative to the input directory. Used as name of the file in manifests, reports
+     * and log output in batch mode.
+     */
+    private String relativeName(File inputFile) {
+        return discovery.relativize(inputFile.toPath());
+    }
+
+
+    /**
+     * Gets the path of the output file relative to the output directory for an input file in batch mode. AASX
+     * packages are converted to a JSON file with the same base name.
+     */
+    private static String outputName(String name) {
+        return AasxPackage.isAasx(name)
+                ? name.substring(0, name.length() - AasxPackage.FILE_EXTENSION.length()) + JSON_FILE_EXTENSION
+                : name;
+    }
+
+
+    /**
+     * Finds all input files in the input directory.
+     *
+     * @return the input files or null if the input directory could not be read
+     */
+    private File[] discoverInputFiles() {
+        LOGGER.info("Scanning input directory '{}'{} for JSON and AASX files...:", input, recursive ? " (recursive)" : "");
+        File[] inputFiles;
+        try {
+            inputFiles = discovery.discover().toArray(File[]::new);
+        }
+        catch (IOException e) {
+            LOGGER.error("Error scanning input directory", e);
+            return null;
+        }
+        LOGGER.info("Found {} files in input directory{}:{}{}",
                 inputFiles.length,
+                shard != null ? " for shard " + shard : "",
                 System.lineSeparator(),
-                Stream.of(inputFiles).map(x -> x.getName()).collect(Collectors.joining(System.lineSeparator())));
+                Stream.of(inputFiles).map(this::relativeName).collect(Collectors.joining(System.lineSeparator())));
+        return inputFiles;
+    }
+
+
+    private Integer convertBatch() {
+        File[] inputFiles = discoverInputFiles();
+        if (inputFiles == null) {
+            return 1;
+        }
         if (output != null && output.isFile()) {
             LOGGER.error("Output is not a directory! When using batch mode, output must be a directory or be omitted");
             return 1;
         }
+        Map<String, List<String>> outputNames = Stream.of(inputFiles)
+                .map(this::relativeName)
+                .collect(Collectors.groupingBy(App::outputName));
+        List<String> conflicts = outputNames.values().stream()
+                .filter(x -> x.size() > 1)
+                .map(x -> String.join(", ", x))
+                .collect(Collectors.toList());
+        if (output != null && !conflicts.isEmpty()) {
+            LOGGER.error("Multiple input files would be written to the same output file: {}", conflicts);
+            return 1;
+        }
+        if (incremental && !loadManifest()) {
+            return 1;
+        }
         List<File> failures = new ArrayList<>();
-        List<AssetAdministrationShellEnvironment> aass = new ArrayList<>();
-        for (int i = 0; i < inputFiles.length; i++) {
-            File in = inputFiles[i];
-            File out = output != null
-                    ? new File(output, in.getName())
-                    : null;
-            LOGGER.info("Processing file [{}/{}]: '{}'...:", i + 1, inputFiles.length, in.getName());
-            try {
-                LOGGER.info("");
-                AssetAdministrationShellEnvironment conversionResult = convert(in, out);
-                if (conversionResult == null) {
-                    failures.add(in);
-                }
-                else {
-                    aass.add(conversionResult);
-                }
-                LOGGER.info("");
-                LOGGER.info("");
+        EnvironmentMerger merger = new EnvironmentMerger();
+        List<File> convertedFiles = new ArrayList<>();
+        Consumer<BatchResult> collector = x -> {
+            x.report.setSuccess(x.success);
+            batchReport.add(x.report);
+            if (manifest != null && x.manifestEntry != null) {
+                manifest.put(relativeName(x.input), x.manifestEntry.withSuccess(x.success));
             }
-            catch (Exception e) {
-                LOGGER.error("unexpected error while converting", e);
-                return 1;
+            if (watch && merge && x.success) {
+                watchedOutputs.put(relativeName(x.input), x.output);
+            }
+            else if (watch && merge) {
+                watchedFailures.add(relativeName(x.input));
+            }
+            if (!x.success) {
+                failures.add(x.input);
+            }
+            else if (merge && failures.isEmpty() && x.environment != null) {
+                long start = System.nanoTime();
+                merger.add(x.environment);
+                batchReport.getMetrics().stage(ConversionMetrics.STAGE_MERGE, since(start));
             }
+            else if (merge && failures.isEmpty() && streaming) {
+                convertedFiles.add(x.output);
+            }
+        };
+        try {
+            processAll(inputFiles.length, i -> convertBatchFile(i, inputFiles), collector);
+        }
+        catch (Exception e) {
+            LOGGER.error("unexpected error while converting", e);
+            return 1;
         }
         LOGGER.info("Successfully converted [{}/{}] files", inputFiles.length - failures.size(), inputFiles.length);
-        if (merge && failures.isEmpty() && aass.size() > 1) {
-            File mergeFile = new File(output, MERGE_FILE_NAME);
+        saveManifest();
+        if (merge && failures.isEmpty() && streaming && convertedFiles.size() > 1) {
+            LOGGER.info("Merging files (streaming)...");
+            long start = System.nanoTime();
+            mergeStreaming(convertedFiles, new File(output, mergeFileName()));
+            batchReport.getMetrics().stage(ConversionMetrics.STAGE_MERGE, since(start));
+        }
+        else if (merge && failures.isEmpty() && merger.getCount() > 1) {
+            File mergeFile = new File(output, mergeFileName());
             LOGGER.info("Merging files...");
-            Map<String, Integer> duplicateCounter = new HashMap<>();
-            AssetAdministrationShellEnvironment mergeResult = aass.stream().reduce((a, b) -> merge(a, b, duplicateCounter)).get();
-            duplicateCounter.forEach((id, count) -> LOGGER.warn("Found {} elements with same identifier but different content (Identifier: {})", count, id));
-            output(mergeResult, mergeFile);
+            long start = System.nanoTime();
+            AssetAdministrationShellEnvironment mergeResult = merger.build();
+            logDuplicates(merger.getDuplicates());
+            output(mergeResult, mergeFile, ConversionMetrics.NONE);
+            batchReport.getMetrics().stage(ConversionMetrics.STAGE_MERGE, since(start));
         }
         else if (!failures.isEmpty()) {
             LOGGER.info("The following files could not be converted: {}{}",
                     System.lineSeparator(),
-                    failures.stream().map(x -> x.getName()).collect(Collectors.joining(System.lineSeparator())));
+                    failures.stream().map(this::relativeName).collect(Collectors.joining(System.lineSeparator())));
             if (merge) {
                 LOGGER.info("Merging will not be performed because of conversion errors.");
             }
         }
+        checkReferences();
+        writeReport();
+        return 0;
+    }
+
+
+    private boolean loadManifest() {
+        if (output == null) {
+            LOGGER.error("Incremental mode requires an output directory");
+            return false;
+        }
+        if (!output.exists() && !output.mkdirs()) {
+            LOGGER.error("path '{}' could not be created", output);
+            return false;
+        }
+        String converterVersion = App.class.getPackage().getImplementationVersion();
+        // custom rules may change the result without changing the converter version
+        String settings = String.format("engine=%s,streaming=%s,rules=%s", engine, streaming, converter.getRules().stream()
+                .map(App::describeRule)
+                .sorted()
+                .collect(Collectors.joining(";", "[", "]")));
+        try {
+            manifest = BatchManifest.load(output, shard, converterVersion, settings);
+        }
+        catch (IOException e) {
+            LOGGER.warn("Error reading conversion state from previous run - all files will be converted", e);
+            manifest = BatchManifest.empty(output, shard, converterVersion, settings);
+        }
+        return true;
+    }
+
+
+    private static String describeRule(ConversionRule rule) {
+        Package rulePackage = rule.getClass().getPackage();
+        String version = rulePackage != null ? rulePackage.getImplementationVersion() : null;
+        return version != null
+                ? String.format("%s@%s", rule.getName(), version)
+                : rule.getName();
+    }
+
+
+    private void saveManifest() {
+        if (manifest == null) {
+            return;
+        }
+        try {
+            manifest.save(input.toPath());
+        }
+        catch (IOException e) {
+            LOGGER.warn("Error saving conversion state - next run will convert all files again", e);
+        }
+    }
+
+
+    private void mergeStreaming(List<File> inputFiles, File mergeFile) {
+        try (StreamingEnvironmentMerger merger = new StreamingEnvironmentMerger()) {
+            for (File inputFile: inputFiles) {
+                merger.add(inputFile);
+            }
+            logDuplicates(merger.getDuplicates());
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(mergeFile))) {
+                merger.write(out);
+            }
+            LOGGER.info("Output written to {}", mergeFile);
+        }
+        catch (IOException e) {
+            LOGGER.error("Error merging files", e);
+        }
+    }
+
+
+    /**
+     * Logs the duplicates found when merging, except those already logged with the same count by the previous merge in
+     * watch mode.
+     */
+    private void logDuplicates(Map<String, Integer> duplicates) {
+        duplicates.forEach((id, count) -> {
+            if (!count.equals(reportedDuplicates.get(id))) {
+                LOGGER.warn("Found {} elements with same identifier but different content (Identifier: {})", count, id);
+            }
+        });
+        reportedDuplicates = Map.copyOf(duplicates);
+    }
+
+
+    private BatchResult convertBatchFile(int index, File[] inputFiles) {
+        File in = inputFiles[index];
+        File out = output != null
+                ? new File(output, outputName(relativeName(in)))
+                : null;
+        LOGGER.info("Processing file [{}/{}]: '{}'...:", index + 1, inputFiles.length, relativeName(in));
+        LOGGER.info("");
+        ConversionReport fileReport = new ConversionReport(relativeName(in));
+        BatchResult result = manifest != null
+                ? convertIncremental(in, out, fileReport)
+                : convertBatchFile(in, out, fileReport, null);
+        LOGGER.info("");
+        LOGGER.info("");
+        return result;
+    }
+
+
+    private BatchResult convertBatchFile(File in, File out, ConversionReport fileReport, BatchManifest.Entry manifestEntry) {
+        if (streaming) {
+            return new BatchResult(in, out, convertStreaming(in, out, fileReport), null, fileReport, manifestEntry);
+        }
+        AssetAdministrationShellEnvironment conversionResult = convert(in, out, fileReport);
+        return new BatchResult(in, out, conversionResult != null, conversionResult, fileReport, manifestEntry);
+    }
+
+
+    private BatchResult convertIncremental(File in, File out, ConversionReport fileReport) {
+        BatchManifest.Entry manifestEntry;
+        try {
+            BatchManifest.Entry unchanged = manifest.findUnchanged(relativeName(in), in, out);
+            if (unchanged != null) {
+                if (!merge || streaming) {
+                    LOGGER.info("File unchanged since last conversion - skipping");
+                    addReferences(relativeName(in), out);
+                    return new BatchResult(in, out, true, null, fileReport, unchanged);
+                }
+                try {
+                    JsonNode previous = MAPPER.readTree(out);
+                    AssetAdministrationShellEnvironment environment = new JsonTreeDeserializer().read(previous);
+                    LOGGER.info("File unchanged since last conversion - using previous result from {}", out);
+                    addReferences(fileReport, previous);
+                    return new BatchResult(in, out, true, environment, fileReport, unchanged);
+                }
+                catch (IOException | DeserializationException e) {
+                    LOGGER.info("Previous result could not be read - converting file again");
+                }
+            }
+            manifestEntry = manifest.describe(in);
+        }
+        catch (IOException e) {
+            LOGGER.error("Error reading input file", e);
+            return new BatchResult(in, out, false, null, fileReport, null);
+        }
+        return convertBatchFile(in, out, fileReport, manifestEntry);
+    }
+
+
+    private Integer watch() {
+        if (!input.isDirectory()) {
+            LOGGER.error("Watch mode requires an input directory");
+            return 1;
+        }
+        if (output == null || output.isFile()) {
+            LOGGER.error("Watch mode requires an output directory");
+            return 1;
+        }
+        if (output.getAbsoluteFile().equals(input.getAbsoluteFile())) {
+            LOGGER.error("Output directory must be different from input directory when using watch mode");
+            return 1;
+        }
+        if (recursive) {
+            LOGGER.warn("Watch mode only detects changes directly in the input directory - changes in subdirectories will be ignored");
+        }
+        if (checkReferences) {
+            LOGGER.warn("Checking references is not supported in watch mode - command will be ignored");
+            referenceChecker = null;
+        }
+        // keep memory usage and the time to rewrite the report constant while running
+        batchReport.setFileLimit(WATCH_REPORT_FILE_LIMIT);
+        try (DirectoryWatcher watcher = new DirectoryWatcher(input.toPath(), Duration.ofMillis(watchDelay), discovery::accepts)) {
+            int result = convertBatch();
+            if (result != 0) {
+                return result;
+            }
+            LOGGER.info("Watching input directory '{}' for new or modified JSON files (press Ctrl+C to stop)...", input);
+            watcher.run(new DirectoryWatcher.Listener() {
+                @Override
+                public void changed(Path file) {
+                    convertWatched(file.toFile());
+                }
+
+
+                @Override
+                public void deleted(Path file) {
+                    removeWatched(file.toFile());
+                }
+            });
+        }
+        catch (IOException e) {
+            LOGGER.error("Error watching input directory", e);
+            return 1;
+        }
         return 0;
     }
 
 
-    private static <T, U> List<T> merge(List<T> coll1, List<T> coll2, Function<T, U> idExtractor, Map<U, Integer> duplicateCounter) {
-        coll1.stream()
-                .forEach(a -> {
-                    U id = idExtractor.apply(a);
-                    Optional<T> duplicate = coll2.stream()
-                            .filter(b -> Objects.equals(id, idExtractor.apply(b)))
-                            .findFirst();
-                    if (duplicate.isPresent() && !Objects.equals(a, duplicate.get())) {
-                        int count = duplicateCounter.containsKey(id)
-                                ? duplicateCounter.get(id)
-                                : 0;
-                        count++;
-                        duplicateCounter.put(id, count);
-                    }
-                });
-        return Stream.concat(coll1.stream(), coll2.stream()).distinct().collect(Collectors.toList());
+    private void convertWatched(File in) {
+        String name = relativeName(in);
+        File out = new File(output, outputName(name));
+        LOGGER.info("Processing file '{}'...:", name);
+        LOGGER.info("");
+        ConversionReport fileReport = new ConversionReport(name);
+        BatchResult result;
+        try {
+            result = manifest != null
+                    ? convertIncremental(in, out, fileReport)
+                    : convertBatchFile(in, out, fileReport, null);
+        }
+        catch (Exception e) {
+            LOGGER.error("unexpected error while converting", e);
+            result = new BatchResult(in, out, false, null, fileReport, null);
+        }
+        fileReport.setSuccess(result.success);
+        batchReport.add(fileReport);
+        if (manifest != null && result.manifestEntry != null) {
+            manifest.put(name, result.manifestEntry.withSuccess(result.success));
+            saveManifest();
+        }
+        LOGGER.info("");
+        if (merge) {
+            File previous = result.success
+                    ? watchedOutputs.put(name, result.output)
+                    : watchedOutputs.remove(name);
+            boolean failuresChanged = result.success
+                    ? watchedFailures.remove(name)
+                    : watchedFailures.add(name);
+            if (previous != null || result.success || failuresChanged) {
+                updateMergeFile();
+            }
+        }
+        writeReport();
+    }
+
+
+    private void removeWatched(File in) {
+        String name = relativeName(in);
+        LOGGER.info("File '{}' has been deleted", name);
+        boolean failed = merge && watchedFailures.remove(name);
+        if ((merge && watchedOutputs.remove(name) != null) || failed) {
+            updateMergeFile();
+        }
     }
 
 
-    private static AssetAdministrationShellEnvironment merge(AssetAdministrationShellEnvironment aas1, AssetAdministrationShellEnvironment aas2,
-                                                             Map<String, Integer> duplicateCounter) {
-        return new DefaultAssetAdministrationShellEnvironment.Builder()
-                .assetAdministrationShells(
-                        merge(aas1.getAssetAdministrationShells(), aas2.getAssetAdministrationShells(), x -> x.getIdentification().getIdentifier(), duplicateCounter))
-                .conceptDescriptions(merge(aas1.getConceptDescriptions(), aas2.getConceptDescriptions(), x -> x.getIdentification().getIdentifier(), duplicateCounter))
-                .submodels(merge(aas1.getSubmodels(), aas2.getSubmodels(), x -> x.getIdentification().getIdentifier(), duplicateCounter))
-                .build();
+    private void updateMergeFile() {
+        // same as in batch mode, the merged file is only written if all files have been converted successfully
+        if (!watchedFailures.isEmpty()) {
+            LOGGER.info("'{}' will not be updated because the following files could not be converted: {}", mergeFileName(), String.join(", ", watchedFailures));
+            return;
+        }
+        if (watchedOutputs.size() < 2) {
+            return;
+        }
+        LOGGER.info("Updating merged file...");
+        long start = System.nanoTime();
+        // merge from the output files so the converted models do not have to be kept in memory
+        mergeStreaming(new ArrayList<>(watchedOutputs.values()), new File(output, mergeFileName()));
+        batchReport.getMetrics().stage(ConversionMetrics.STAGE_MERGE, since(start));
     }
 
 
-    private static void enableDebug() {
+    /**
+     * Processes the files with the given indices, in parallel if multiple threads are used. Results are passed to the
+     * collector in order of their indices and log output of each file is written in one piece.
+     *
+     * @param count number of files
+     * @param task processes the file with the given index
+     * @param collector receives the results
+     * @throws Exception if processing a file fails unexpectedly
+     */
+    private <T> void processAll(int count, IntFunction<T> task, Consumer<T> collector) throws Exception {
+        if (threads == 1) {
+            for (int i = 0; i < count; i++) {
+                collector.accept(task.apply(i));
+            }
+            return;
+        }
+        LogBuffer.install();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<LogBuffer.Captured<T>>> pending = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                pending.add(executor.submit(() -> LogBuffer.capture(() -> task.apply(index))));
+                if (pending.size() >= threads * MAX_PENDING_FILES_PER_THREAD) {
+                    collect(pending.poll().get(), collector);
+                }
+            }
+            while (!pending.isEmpty()) {
+                collect(pending.poll().get(), collector);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private static <T> void collect(LogBuffer.Captured<T> result, Consumer<T> collector) throws Exception {
+        result.flush();
+        if (result.getError() != null) {
+            throw result.getError();
+        }
+        collector.accept(result.getValue());
+    }
+
+
+    /**
+     * Redirects all console log output to standard error so that standard output only contains the conversion result.
+     */
+    private static void redirectConsoleLogging() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        for (ch.qos.logback.classic.Logger logger: context.getLoggerList()) {
+            Iterator<Appender<ILoggingEvent>> appenders = logger.iteratorForAppenders();
+            while (appenders.hasNext()) {
+                Appender<ILoggingEvent> appender = appenders.next();
+                if (appender instanceof ConsoleAppender) {
+                    appender.stop();
+                    ((ConsoleAppender<?>) appender).setTarget(CONSOLE_TARGET_STANDARD_ERROR);
+                    appender.start();
+                }
+            }
+        }
+    }
+
+
+    private void enableDebug() {
         LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
         LevelFilter filter = new LevelFilter();
         filter.setLevel(Level.DEBUG);
@@ -267,26 +1060,263 @@ public class App implements Callable<Integer> {
         encoder.setContext(context);
         encoder.start();
         ConsoleAppender appender = new ConsoleAppender();
+        if (isResultOnStandardOutput()) {
+            appender.setTarget(CONSOLE_TARGET_STANDARD_ERROR);
+        }
         appender.addFilter(filter);
         appender.setEncoder(encoder);
         appender.setContext(context);
         appender.start();
-        ch.qos.logback.classic.Logger logger = context.getLogger(PackageExplorerConverter.class);
-        logger.setLevel(Level.DEBUG);
-        logger.setAdditive(true);
-        logger.addAppender(appender);
+        Stream.of(PackageExplorerConverter.class, TreeWalkingTransformer.class).forEach(x -> {
+            ch.qos.logback.classic.Logger logger = context.getLogger(x);
+            logger.setLevel(Level.DEBUG);
+            logger.setAdditive(true);
+            logger.addAppender(appender);
+        });
     }
 
 
     @Override
     public Integer call() {
+        if (input == null) {
+            throw new ParameterException(spec.commandLine(), "Missing required option: '--input=<input>'");
+        }
+        if (isResultOnStandardOutput()) {
+            redirectConsoleLogging();
+        }
         printHeader();
         if (debug) {
             enableDebug();
         }
-        return input.isDirectory()
-                ? convertBatch()
-                : convertSingleFile();
+        if (input.isDirectory() && isStandardStream(output)) {
+            LOGGER.error("Writing to standard output is not supported when input is a directory");
+            return 1;
+        }
+        if (input.isDirectory() && output == null && !check && threads > 1) {
+            // results of files converted in parallel would be interleaved on standard output
+            LOGGER.error("Converting files in parallel requires an output directory");
+            return 1;
+        }
+        if (input.isDirectory() && gzip) {
+            LOGGER.warn("Compression not supported when converting a directory - command will be ignored");
+            gzip = false;
+        }
+        if (threads < 1 || elementThreads < 1) {
+            LOGGER.error("Number of threads must be at least 1");
+            return 1;
+        }
+        if (input.isDirectory()) {
+            discovery = new InputDiscovery(input.toPath(), recursive, App::isInputFile, includes, excludes, shard, output != null ? output.toPath() : null);
+        }
+        else if (recursive || shard != null || !includes.isEmpty() || !excludes.isEmpty()) {
+            LOGGER.warn("Input is a single file - options --recursive, --include, --exclude and --shard will be ignored");
+        }
+        boolean parallelElements = elementThreads > 1 && engine == ConversionEngine.SINGLE_PASS && !streaming && !check && journalFile == null;
+        converter = parallelElements
+                ? PackageExplorerConverter.builder().engine(engine).registeredRules().parallelism(elementThreads).build()
+                : PackageExplorerConverter.getDefault(engine);
+        if (elementThreads > 1 && !parallelElements) {
+            LOGGER.warn("Converting the elements of a file in parallel is only supported by engine {} without --streaming, --check and --journal - elements will be "
+                    + "converted sequentially", ConversionEngine.SINGLE_PASS);
+        }
+        else if (parallelElements) {
+            // keep log output of the elements in order
+            LogBuffer.install();
+        }
+        List<ConversionRule> rules = converter.getRules();
+        if (!rules.isEmpty()) {
+            LOGGER.info("Using custom conversion rules: {}", rules.stream().map(ConversionRule::getName).collect(Collectors.joining(", ")));
+            if (streaming || check) {
+                LOGGER.warn("Custom conversion rules are not supported in streaming and check mode - rules will be ignored");
+            }
+        }
+        if (check) {
+            return check();
+        }
+        if (split && (output == null || isStandardStream(output) || streaming)) {
+            LOGGER.warn("Split output requires an output file or directory and is not supported in streaming mode - command will be ignored");
+            split = false;
+        }
+        if (split && gzip) {
+            LOGGER.warn("Compression not supported with split output - command will be ignored");
+            gzip = false;
+        }
+        if (split && watch && merge) {
+            LOGGER.warn("Split output not supported when merging in watch mode - command will be ignored");
+            split = false;
+        }
+        if (split && incremental) {
+            LOGGER.warn("Incremental mode not supported with split output - command will be ignored (files of unchanged identifiables are not rewritten)");
+            incremental = false;
+        }
+        if (checkReferences) {
+            referenceChecker = new ReferenceChecker();
+        }
+        if (journalFile != null) {
+            if (engine != ConversionEngine.SINGLE_PASS) {
+                LOGGER.warn("Change journal is only supported by engine {} - no changes will be recorded", ConversionEngine.SINGLE_PASS);
+            }
+            try {
+                journal = createJournal();
+            }
+            catch (IllegalArgumentException e) {
+                throw new ParameterException(spec.commandLine(), e.getMessage());
+            }
+            catch (IOException e) {
+                LOGGER.error("Error creating change journal", e);
+                return 1;
+            }
+        }
+        try {
+            if (watch) {
+                return watch();
+            }
+            return input.isDirectory()
+                    ? convertBatch()
+                    : convertSingleFile();
+        }
+        finally {
+            closeJournal();
+            converter.close();
+        }
+    }
+
+
+    private Integer check() {
+        if (output != null || merge || incremental || watch || gzip || split || journalFile != null || checkReferences) {
+            LOGGER.warn("Check mode does not write any output - options --output, --merge, --incremental, --watch, --gzip, --split, --journal and --check-references "
+                    + "will be ignored");
+        }
+        File[] inputFiles = input.isDirectory()
+                ? discoverInputFiles()
+                : new File[] {
+                        input
+                };
+        if (inputFiles == null) {
+            return 1;
+        }
+        List<ConversionReport> results = new ArrayList<>();
+        try {
+            processAll(inputFiles.length, i -> checkFile(i, inputFiles), x -> {
+                results.add(x);
+                batchReport.add(x);
+            });
+        }
+        catch (Exception e) {
+            LOGGER.error("unexpected error while checking", e);
+            return 1;
+        }
+        long failed = results.stream().filter(x -> !x.isSuccess()).count();
+        long conversionRequired = results.stream().filter(x -> x.isSuccess() && hasAny(x.getModified())).count();
+        long withWarnings = results.stream().filter(x -> x.isSuccess() && hasAny(x.getWarnings())).count();
+        LOGGER.info("Checked {} files: {} require conversion, {} with warnings, {} could not be read", inputFiles.length, conversionRequired, withWarnings, failed);
+        writeReport();
+        if (failed > 0) {
+            return 1;
+        }
+        if (withWarnings > 0) {
+            return EXIT_CODE_WARNINGS;
+        }
+        return conversionRequired > 0
+                ? EXIT_CODE_CONVERSION_REQUIRED
+                : 0;
+    }
+
+
+    private ConversionReport checkFile(int index, File[] inputFiles) {
+        File in = inputFiles[index];
+        String name = input.isDirectory()
+                ? relativeName(in)
+                : in.getName();
+        ConversionReport fileReport = new ConversionReport(name);
+        long start = System.nanoTime();
+        try {
+            if (isStandardStream(in)) {
+                try (InputStream stream = openStandardInput()) {
+                    PackageExplorerConverter.check(stream, fileReport);
+                }
+            }
+            else {
+                try (ConversionInput source = ConversionInput.of(in);
+                        InputStream stream = source.open()) {
+                    PackageExplorerConverter.check(stream, fileReport);
+                    fileReport.bytesRead(source.getSize());
+                }
+            }
+        }
+        catch (IOException e) {
+            LOGGER.error("[{}/{}] {}: error reading file", index + 1, inputFiles.length, name, e);
+            return fileReport;
+        }
+        fileReport.stage(ConversionMetrics.STAGE_CHECK, since(start));
+        fileReport.setSuccess(true);
+        String rules = fileReport.getModified().entrySet().stream()
+                .filter(x -> x.getValue() > 0)
+                .map(x -> x.getKey() + ": " + x.getValue())
+                .collect(Collectors.joining(", "));
+        if (rules.isEmpty()) {
+            LOGGER.info("[{}/{}] {}: no conversion required", index + 1, inputFiles.length, name);
+        }
+        else {
+            LOGGER.info("[{}/{}] {}: conversion required ({})", index + 1, inputFiles.length, name, rules);
+        }
+        fileReport.getWarnings().forEach((warning, count) -> {
+            if (count > 0) {
+                LOGGER.warn("[{}/{}] {}: {} {}", index + 1, inputFiles.length, name, count, CHECK_WARNINGS.getOrDefault(warning, warning));
+            }
+        });
+        return fileReport;
+    }
+
+
+    private static boolean hasAny(Map<String, Long> counts) {
+        return counts.values().stream().anyMatch(x -> x > 0);
+    }
+
+
+    private ChangeJournal createJournal() throws IOException {
+        ChangeJournal.Builder builder = ChangeJournal.builder(journalFile)
+                .limit(journalLimit)
+                .maxSize(journalMaxSize * 1024 * 1024);
+        // apply default rate first so that it does not override rule-specific rates
+        journalSamples.stream()
+                .filter(x -> x.indexOf('=') < 0)
+                .forEach(x -> builder.sample(parseSamplingRate(x)));
+        journalSamples.stream()
+                .filter(x -> x.indexOf('=') >= 0)
+                .forEach(x -> builder.sample(x.substring(0, x.indexOf('=')).trim(), parseSamplingRate(x.substring(x.indexOf('=') + 1))));
+        return builder.build();
+    }
+
+
+    private static int parseSamplingRate(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("invalid sampling rate for change journal: '%s'", value), e);
+        }
+    }
+
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        }
+        catch (IOException e) {
+            LOGGER.warn("Error writing change journal", e);
+        }
+        journal = null;
+    }
+
+
+    private ChangeJournal.Recorder recorder(ConversionReport fileReport) {
+        return journal != null
+                ? journal.forDocument(fileReport.getFile())
+                : null;
     }
 
 
@@ -311,4 +1341,45 @@ public class App implements Callable<Integer> {
         LOGGER.info("");
         LOGGER.info("");
     }
+
+    /**
+     * Writes to standard output without closing it, bypassing {@link System#out} to avoid its per-line flushing.
+     */
+    private static class StandardOutputStream extends FilterOutputStream {
+
+        private StandardOutputStream() {
+            super(new FileOutputStream(FileDescriptor.out));
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static class BatchResult {
+
+        private final File input;
+        private final File output;
+        private final boolean success;
+        private final AssetAdministrationShellEnvironment environment;
+        private final ConversionReport report;
+        private final BatchManifest.Entry manifestEntry;
+
+        private BatchResult(File input, File output, boolean success, AssetAdministrationShellEnvironment environment, ConversionReport report, BatchManifest.Entry manifestEntry) {
+            this.input = input;
+            this.output = output;
+            this.success = success;
+            this.environment = environment;
+            this.report = report;
+            this.manifestEntry = manifestEntry;
+        }
+    }
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+
+/**
+ * Manifest of an incremental batch conversion stored in the output directory.
+ *
+ * <p>For each input file the manifest records size, last modification time, content hash, the converter version and
+ * settings used, and whether conversion was successful. An input file is considered unchanged if it has been converted
+ * successfully with the same converter version and settings, the output file still exists, and its content hash is the
+ * same. The hash is only computed if size or modification time differ from the recorded values.
+ *
+ * <p>Entries of files that have not been converted in the current run, e.g. because they have been excluded, are kept
+ * as long as the files still exist, so a later run including them again does not need to convert them.
+ *
+ * <p>Lookups may be performed concurrently; updates and saving must be performed by a single thread.
+ */
+class BatchManifest {
+
+    static final String FILE_NAME = ".package-explorer-converter.manifest";
+    private static final String FILES = "files";
+    private static final String CONVERTER_VERSION = "converterVersion";
+    private static final String SETTINGS = "settings";
+    private static final String SIZE = "size";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String HASH = "hash";
+    private static final String SUCCESS = "success";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final File file;
+    private final String converterVersion;
+    private final String settings;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new TreeMap<>();
+
+    private BatchManifest(File file, String converterVersion, String settings, Map<String, Entry> previous) {
+        this.file = file;
+        this.converterVersion = converterVersion;
+        this.settings = settings;
+        this.previous = previous;
+    }
+
+
+    /**
+     * Gets the name of the manifest file. Each shard uses a manifest of its own so that shards converting to the same
+     * directory do not replace each other's entries.
+     *
+     * @param shard the shard; may be null
+     * @return the name of the manifest file
+     */
+    static String fileName(Shard shard) {
+        return shard != null
+                ? FILE_NAME + "." + shard.getFileName()
+                : FILE_NAME;
+    }
+
+
+    /**
+     * Loads the manifest from a directory. If the directory does not contain a manifest, an empty one is created.
+     *
+     * @param directory the directory
+     * @param shard the shard converted in this run; may be null
+     * @param converterVersion the version of the converter
+     * @param settings the conversion settings that influence the output
+     * @return the manifest
+     * @throws IOException if the manifest exists but cannot be read
+     */
+    static BatchManifest load(File directory, Shard shard, String converterVersion, String settings) throws IOException {
+        File file = new File(directory, fileName(shard));
+        Map<String, Entry> previous = new HashMap<>();
+        if (file.isFile()) {
+            JsonNode files = MAPPER.readTree(file).path(FILES);
+            for (Iterator<Map.Entry<String, JsonNode>> iterator = files.fields(); iterator.hasNext();) {
+                Map.Entry<String, JsonNode> entry = iterator.next();
+                previous.put(entry.getKey(), Entry.fromJson(entry.getValue()));
+            }
+        }
+        return new BatchManifest(file, converterVersion, settings, previous);
+    }
+
+
+    /**
+     * Creates an empty manifest for a directory, replacing any existing manifest when saved.
+     *
+     * @param directory the directory
+     * @param shard the shard converted in this run; may be null
+     * @param converterVersion the version of the converter
+     * @param settings the conversion settings that influence the output
+     * @return the manifest
+     */
+    static BatchManifest empty(File directory, Shard shard, String converterVersion, String settings) {
+        return new BatchManifest(new File(directory, fileName(shard)), converterVersion, settings, new HashMap<>());
+    }
+
+
+    /**
+     * Finds the recorded entry for an input file if the input file has not changed since it has been converted.
+     *
+     * @param name the name of the input file within the batch
+     * @param input the input file
+     * @param output the output file
+     * @return the entry if the input file is unchanged, otherwise null
+     * @throws IOException if computing the content hash fails
+     */
+    Entry findUnchanged(String name, File input, File output) throws IOException {
+        Entry entry = previous.get(name);
+        if (entry == null
+                || !entry.success
+                || !Objects.equals(converterVersion, entry.converterVersion)
+                || !Objects.equals(settings, entry.settings)
+                || !output.isFile()
+                || entry.size != input.length()) {
+            return null;
+        }
+        if (entry.lastModified == input.lastModified()) {
+            return entry;
+        }
+        String hash = Fingerprint.of(input);
+        return Objects.equals(hash, entry.hash)
+                ? new Entry(input.length(), input.lastModified(), hash, converterVersion, settings, true)
+                : null;
+    }
+
+
+    /**
+     * Describes the current state of an input file. Must be called before converting the file so changes made during
+     * conversion are detected in the next run.
+     *
+     * @param input the input file
+     * @return an entry describing the input file that is not yet marked as successful
+     * @throws IOException if computing the content hash fails
+     */
+    Entry describe(File input) throws IOException {
+        return new Entry(input.length(), input.lastModified(), Fingerprint.of(input), converterVersion, settings, false);
+    }
+
+
+    /**
+     * Records the entry for an input file, replacing the entry of a previous run.
+     *
+     * @param name the name of the input file within the batch
+     * @param entry the entry
+     */
+    void put(String name, Entry entry) {
+        current.put(name, entry);
+    }
+
+
+    /**
+     * Saves the manifest, replacing the existing one. Contains the entries recorded in the current run and the entries
+     * of previous runs that have not been replaced. Entries of input files that no longer exist are removed.
+     *
+     * @param inputDirectory the input directory the names of the input files are relative to
+     * @throws IOException if writing the manifest fails
+     */
+    void save(Path inputDirectory) throws IOException {
+        Map<String, Entry> entries = new TreeMap<>(previous);
+        entries.putAll(current);
+        ObjectNode root = MAPPER.createObjectNode();
+        ObjectNode files = root.putObject(FILES);
+        entries.forEach((name, entry) -> {
+            if (Files.isRegularFile(inputDirectory.resolve(name))) {
+                files.set(name, entry.toJson());
+            }
+        });
+        Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), root);
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * State of a single input file.
+     */
+    static class Entry {
+
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        private final String converterVersion;
+        private final String settings;
+        private final boolean success;
+
+        private Entry(long size, long lastModified, String hash, String converterVersion, String settings, boolean success) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.converterVersion = converterVersion;
+            this.settings = settings;
+            this.success = success;
+        }
+
+
+        /**
+         * Creates a copy of this entry with the given conversion outcome.
+         *
+         * @param success whether the conversion was successful
+         * @return the new entry
+         */
+        Entry withSuccess(boolean success) {
+            return new Entry(size, lastModified, hash, converterVersion, settings, success);
+        }
+
+
+        private ObjectNode toJson() {
+            ObjectNode result = MAPPER.createObjectNode();
+            result.put(SIZE, size);
+            result.put(LAST_MODIFIED, lastModified);
+            result.put(HASH, hash);
+            result.put(CONVERTER_VERSION, converterVersion);
+            result.put(SETTINGS, settings);
+            result.put(SUCCESS, success);
+            return result;
+        }
+
+
+        private static Entry fromJson(JsonNode node) {
+            return new Entry(
+                    node.path(SIZE).asLong(-1),
+                    node.path(LAST_MODIFIED).asLong(-1),
+                    node.path(HASH).textValue(),
+                    node.path(CONVERTER_VERSION).textValue(),
+                    node.path(SETTINGS).textValue(),
+                    node.path(SUCCESS).asBoolean());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+
+/**
+ * Collects the reports of all files converted in a single run together with their aggregated metrics and writes them
+ * as JSON. The number of file reports kept can be limited for long-running processes, the aggregated metrics always
+ * include all files.
+ */
+public class BatchReport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private final Deque<ConversionReport> files = new ArrayDeque<>();
+    private final ConversionReport total = new ConversionReport(null);
+    private final long start = System.nanoTime();
+    private int fileCount;
+    private int failures;
+    private int fileLimit = Integer.MAX_VALUE;
+
+    /**
+     * Adds the report of a single file.
+     *
+     * @param report the report
+     */
+    public void add(ConversionReport report) {
+        files.add(report);
+        if (files.size() > fileLimit) {
+            files.removeFirst();
+        }
+        fileCount++;
+        total.add(report);
+        if (!report.isSuccess()) {
+            failures++;
+        }
+    }
+
+
+    /**
+     * Limits the number of file reports kept, discarding the oldest reports first. Unlimited by default.
+     *
+     * @param fileLimit the maximum number of file reports
+     * @throws IllegalArgumentException if fileLimit is less than 1
+     */
+    public void setFileLimit(int fileLimit) {
+        if (fileLimit < 1) {
+            throw new IllegalArgumentException("file limit must be at least 1");
+        }
+        this.fileLimit = fileLimit;
+        while (files.size() > fileLimit) {
+            files.removeFirst();
+        }
+    }
+
+
+    /**
+     * Gets the metrics for stages that are not related to a single file, e.g. merging.
+     *
+     * @return the metrics
+     */
+    public ConversionMetrics getMetrics() {
+        return total;
+    }
+
+
+    /**
+     * Writes the report to a file.
+     *
+     * @param file the file
+     * @throws IOException if writing fails
+     */
+    public void write(File file) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        ObjectNode totalNode = root.putObject("total");
+        totalNode.put("files", fileCount);
+        totalNode.put("failures", failures);
+        totalNode.put("duration", (System.nanoTime() - start) / NANOS_PER_MILLI);
+        totalNode.setAll(total.toJson());
+        ArrayNode filesNode = root.putArray("files");
+        files.forEach(x -> filesNode.add(x.toJson()));
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(file, root);
+    }
+}
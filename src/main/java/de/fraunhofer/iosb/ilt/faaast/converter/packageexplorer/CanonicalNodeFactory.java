@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Node factory that returns the same {@link TextNode} instance for equal string values. Package Explorer models repeat
+ * the same values many times, e.g. semantic IDs, key types, idTypes and data specification IRIs, so sharing the nodes
+ * considerably reduces the size of the retained tree, and of the FA³ST model bound from it, for large models. Field
+ * names are already canonicalized by the Jackson parser.
+ *
+ * <p>Text nodes are immutable and therefore safe to share. Container nodes keep a reference to the factory that created
+ * them, so values added while converting, e.g. via {@link com.fasterxml.jackson.databind.node.ObjectNode#put(String,
+ * String)}, are canonicalized as well. An instance is meant to be used for a single document and is thread-safe.
+ */
+final class CanonicalNodeFactory extends JsonNodeFactory {
+
+    /**
+     * Longer values, e.g. descriptions, rarely repeat and are therefore not canonicalized.
+     */
+    private static final int MAX_LENGTH = 256;
+    /**
+     * Upper bound for the number of distinct values per document to limit memory usage for documents with mostly
+     * unique values.
+     */
+    private static final int MAX_SIZE = 1 << 16;
+    private static final long serialVersionUID = 1L;
+    private final transient Map<String, TextNode> values = new ConcurrentHashMap<>();
+    private final transient LongAdder requested = new LongAdder();
+    private final transient LongAdder created = new LongAdder();
+
+    @Override
+    public TextNode textNode(String text) {
+        if (text == null || text.isEmpty() || text.length() > MAX_LENGTH) {
+            return super.textNode(text);
+        }
+        requested.increment();
+        TextNode result = values.get(text);
+        if (result != null) {
+            return result;
+        }
+        result = super.textNode(text);
+        created.increment();
+        if (values.size() >= MAX_SIZE) {
+            return result;
+        }
+        TextNode existing = values.putIfAbsent(text, result);
+        return existing != null
+                ? existing
+                : result;
+    }
+
+
+    /**
+     * Reports the number of requested and created text nodes.
+     *
+     * @param metrics the metrics to report to
+     */
+    void reportTo(ConversionMetrics metrics) {
+        metrics.strings(requested.sum(), created.sum());
+    }
+}
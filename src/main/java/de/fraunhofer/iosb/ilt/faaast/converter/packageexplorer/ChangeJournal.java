@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer.PackageExplorerConverter.Step;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Records the changes made by the built-in conversion rules to a JSON Lines file. Each line describes a single rewrite
+ * and contains the name of the converted file, the rule, the JSON pointer of the affected node and its value before
+ * and after the rewrite. 'before' is omitted for added nodes and 'after' for removed nodes. Pointers refer to the
+ * document at the time the rule is applied, i.e. after all previous rewrites of enclosing nodes.
+ *
+ * <p>To keep the overhead low, only every n-th rewrite of each rule is recorded (see {@link Builder#sample(int)}), the
+ * number of records per rule and file is limited and values exceeding a maximum length are truncated; such records
+ * contain the beginning of the serialized value as string and the flag 'truncated'. Records are serialized by the
+ * converting thread and written to the file by a background thread. If the background thread cannot keep up, records
+ * are dropped instead of slowing down the conversion. Changes are only recorded by the
+ * {@link ConversionEngine#SINGLE_PASS} engine, including streaming mode; custom rules are not recorded.
+ */
+public class ChangeJournal implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeJournal.class);
+    private static final JsonFactory JSON_FACTORY = new ObjectMapper().getFactory();
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final byte[] END_OF_JOURNAL = new byte[0];
+    public static final int DEFAULT_LIMIT = 1000;
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 1024;
+    public static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;
+    private final File file;
+    private final OutputStream output;
+    private final int[] sampleRates;
+    private final int limit;
+    private final int maxValueLength;
+    private final long maxSize;
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private long written;
+    private long size;
+    private boolean failed;
+
+    private ChangeJournal(Builder builder) throws IOException {
+        this.file = builder.file;
+        this.sampleRates = builder.sampleRates.clone();
+        this.limit = builder.limit;
+        this.maxValueLength = builder.maxValueLength;
+        this.maxSize = builder.maxSize;
+        this.output = new BufferedOutputStream(new FileOutputStream(file));
+        this.writer = new Thread(this::writeRecords, "change-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+
+    /**
+     * Creates a new builder.
+     *
+     * @param file the file to write the journal to; overwritten if it already exists
+     * @return a new builder
+     */
+    public static Builder builder(File file) {
+        return new Builder(file);
+    }
+
+
+    /**
+     * Creates a recorder for a single document. Recorders are not thread-safe, i.e. each document must be converted by
+     * a single thread at a time.
+     *
+     * @param name the name of the document, e.g. the path of the input file
+     * @return the recorder
+     */
+    public Recorder forDocument(String name) {
+        return new Recorder(name);
+    }
+
+
+    /**
+     * Waits until all records have been written and closes the file.
+     *
+     * @throws IOException if writing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(END_OF_JOURNAL);
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        output.close();
+        LOGGER.info("Change journal written to '{}' ({} records, {} changes not recorded because of sampling or limits, {} records dropped)",
+                file, written, skipped.sum(), dropped.sum());
+    }
+
+
+    private void writeRecords() {
+        try {
+            while (true) {
+                byte[] line = queue.take();
+                if (line == END_OF_JOURNAL) {
+                    return;
+                }
+                write(line);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private void write(byte[] line) {
+        if (failed || size + line.length > maxSize) {
+            dropped.increment();
+            return;
+        }
+        try {
+            output.write(line);
+            size += line.length;
+            written++;
+            if (queue.isEmpty()) {
+                // keep the file up to date when idle, e.g. in watch mode
+                output.flush();
+            }
+        }
+        catch (IOException e) {
+            LOGGER.error("Error writing change journal - further changes will not be recorded", e);
+            failed = true;
+        }
+    }
+
+
+    private void enqueue(byte[] line) {
+        if (!queue.offer(line)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Records the changes made to a single document.
+     */
+    public class Recorder {
+
+        private final String document;
+        private final long[] seen = new long[Step.values().length];
+        private final int[] recorded = new int[Step.values().length];
+
+        private Recorder(String document) {
+            this.document = document;
+        }
+
+
+        /**
+         * Decides whether a change made by a rule is recorded. Must be called exactly once for each change.
+         *
+         * @param step the rule
+         * @return true if the change must be passed to {@link #record(Step, String, JsonNode, JsonNode)}, otherwise
+         *         false
+         */
+        boolean accepts(Step step) {
+            int i = step.ordinal();
+            if (seen[i]++ % sampleRates[i] != 0 || recorded[i] >= limit) {
+                skipped.increment();
+                return false;
+            }
+            recorded[i]++;
+            return true;
+        }
+
+
+        /**
+         * Records a change. The values are serialized immediately, so they may be modified afterwards.
+         *
+         * @param step the rule
+         * @param pointer the JSON pointer of the changed node
+         * @param before the value before the change; null if the node has been added
+         * @param after the value after the change; null if the node has been removed
+         */
+        void record(Step step, String pointer, JsonNode before, JsonNode after) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+                generator.writeStartObject();
+                generator.writeStringField("file", document);
+                generator.writeStringField("rule", step.getName());
+                generator.writeStringField("pointer", pointer);
+                boolean truncated = writeValue(generator, "before", before);
+                truncated |= writeValue(generator, "after", after);
+                if (truncated) {
+                    generator.writeBooleanField("truncated", true);
+                }
+                generator.writeEndObject();
+            }
+            catch (IOException e) {
+                LOGGER.warn("Error recording change of node '{}'", pointer, e);
+                return;
+            }
+            buffer.write('\n');
+            enqueue(buffer.toByteArray());
+        }
+
+
+        private boolean writeValue(JsonGenerator generator, String name, JsonNode value) throws IOException {
+            if (value == null) {
+                return false;
+            }
+            BoundedWriter serialized = new BoundedWriter(maxValueLength);
+            try (JsonGenerator valueGenerator = JSON_FACTORY.createGenerator(serialized)) {
+                valueGenerator.writeTree(value);
+            }
+            catch (LimitReachedException e) {
+                // value is truncated
+            }
+            generator.writeFieldName(name);
+            if (serialized.truncated) {
+                generator.writeString(serialized.buffer.toString());
+            }
+            else {
+                generator.writeRawValue(serialized.buffer.toString());
+            }
+            return serialized.truncated;
+        }
+    }
+
+    /**
+     * Builder for {@link ChangeJournal}.
+     */
+    public static class Builder {
+
+        private final File file;
+        private final int[] sampleRates = new int[Step.values().length];
+        private int limit = DEFAULT_LIMIT;
+        private int maxValueLength = DEFAULT_MAX_VALUE_LENGTH;
+        private long maxSize = DEFAULT_MAX_SIZE;
+
+        private Builder(File file) {
+            this.file = Objects.requireNonNull(file, "file must be non-null");
+            Arrays.fill(sampleRates, 1);
+        }
+
+
+        /**
+         * Only records every n-th change of each rule in each document. Defaults to 1, i.e. all changes are recorded.
+         *
+         * @param rate the sampling rate
+         * @return this builder
+         * @throws IllegalArgumentException if rate is less than 1
+         */
+        public Builder sample(int rate) {
+            Arrays.fill(sampleRates, checkPositive(rate, "sampling rate"));
+            return this;
+        }
+
+
+        /**
+         * Only records every n-th change of a rule in each document, overriding {@link #sample(int)} for this rule.
+         *
+         * @param rule the name of the built-in rule, e.g. REMOVE_KEY_INDEX
+         * @param rate the sampling rate
+         * @return this builder
+         * @throws IllegalArgumentException if the rule does not exist or rate is less than 1
+         */
+        public Builder sample(String rule, int rate) {
+            Step step = Arrays.stream(Step.values())
+                    .filter(x -> x.getName().equalsIgnoreCase(rule))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format("unknown rule '%s', valid rules: %s", rule, Arrays.toString(Step.values()))));
+            sampleRates[step.ordinal()] = checkPositive(rate, "sampling rate");
+            return this;
+        }
+
+
+        /**
+         * Sets the maximum number of records per rule and document. Defaults to {@link #DEFAULT_LIMIT}.
+         *
+         * @param limit the maximum number of records
+         * @return this builder
+         * @throws IllegalArgumentException if limit is less than 1
+         */
+        public Builder limit(int limit) {
+            this.limit = checkPositive(limit, "limit");
+            return this;
+        }
+
+
+        /**
+         * Sets the length in characters after which serialized values are truncated. Defaults to
+         * {@link #DEFAULT_MAX_VALUE_LENGTH}.
+         *
+         * @param maxValueLength the maximum length
+         * @return this builder
+         * @throws IllegalArgumentException if maxValueLength is less than 1
+         */
+        public Builder maxValueLength(int maxValueLength) {
+            this.maxValueLength = checkPositive(maxValueLength, "maximum value length");
+            return this;
+        }
+
+
+        /**
+         * Sets the maximum size of the journal file in bytes. Further records are dropped. Defaults to
+         * {@link #DEFAULT_MAX_SIZE}.
+         *
+         * @param maxSize the maximum size in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if maxSize is less than 1
+         */
+        public Builder maxSize(long maxSize) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException(String.format("maximum size must be at least 1 (value: %d)", maxSize));
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+
+        /**
+         * Creates the journal and opens the file.
+         *
+         * @return the journal
+         * @throws IOException if the file cannot be created
+         */
+        public ChangeJournal build() throws IOException {
+            return new ChangeJournal(this);
+        }
+
+
+        private static int checkPositive(int value, String name) {
+            if (value < 1) {
+                throw new IllegalArgumentException(String.format("%s must be at least 1 (value: %d)", name, value));
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Collects up to a given number of characters and fails afterwards to stop serializing large values early.
+     */
+    private static class BoundedWriter extends Writer {
+
+        private final StringBuilder buffer = new StringBuilder();
+        private final int limit;
+        private boolean truncated;
+
+        private BoundedWriter(int limit) {
+            this.limit = limit;
+        }
+
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (truncated) {
+                throw new LimitReachedException();
+            }
+            int accepted = Math.min(length, limit - buffer.length());
+            buffer.append(chars, offset, accepted);
+            if (accepted < length) {
+                truncated = true;
+                throw new LimitReachedException();
+            }
+        }
+
+
+        @Override
+        public void flush() {
+            // nothing to flush
+        }
+
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+    }
+
+    private static class LimitReachedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+/**
+ * Engines available for converting a Package Explorer JSON document.
+ */
+public enum ConversionEngine {
+    /**
+     * Applies all transformations in a single depth-first pass over the Jackson tree. Produces the same output and
+     * rule counts as {@link #JSON_PATH} but does not report the duration of each built-in rule.
+     */
+    SINGLE_PASS,
+    /**
+     * Applies each transformation as a separate JsonPath query over the whole document (legacy behavior).
+     */
+    JSON_PATH
+}
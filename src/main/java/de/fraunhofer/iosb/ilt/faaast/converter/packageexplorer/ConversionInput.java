@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+
+/**
+ * A JSON document to convert that can be read multiple times, e.g. once for format detection and once for conversion.
+ */
+interface ConversionInput extends Closeable {
+
+    /**
+     * Opens a new stream to read the JSON document. The caller is responsible for closing the stream.
+     *
+     * @return a new stream
+     * @throws IOException if opening the stream fails
+     */
+    InputStream open() throws IOException;
+
+
+    /**
+     * Gets the size of the JSON document in bytes.
+     *
+     * @return the size in bytes
+     */
+    long getSize();
+
+
+    /**
+     * Creates an input for a file. Files with extension {@code .aasx} are read as AASX package, all other files as
+     * JSON.
+     *
+     * @param file the file
+     * @return the input
+     * @throws IOException if the file is an AASX package that cannot be read
+     */
+    static ConversionInput of(File file) throws IOException {
+        return AasxPackage.isAasx(file.getName())
+                ? new AasxPackage(file)
+                : new JsonFile(file, false);
+    }
+
+
+    /**
+     * Creates an input that can be read multiple times from a stream that can only be read once by copying the stream
+     * to a temporary file. The temporary file is deleted when the input is closed.
+     *
+     * @param input the stream to copy; not closed by this method
+     * @return the input
+     * @throws IOException if copying the stream fails
+     */
+    static ConversionInput spool(InputStream input) throws IOException {
+        Path file = Files.createTempFile("package-explorer-converter", ".json");
+        try {
+            Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new JsonFile(file.toFile(), true);
+    }
+
+    /**
+     * Input that is read from a JSON file.
+     */
+    class JsonFile implements ConversionInput {
+
+        private final File file;
+        private final boolean temporary;
+
+        JsonFile(File file, boolean temporary) {
+            this.file = file;
+            this.temporary = temporary;
+        }
+
+
+        @Override
+        public InputStream open() throws IOException {
+            return new FileInputStream(file);
+        }
+
+
+        @Override
+        public long getSize() {
+            return file.length();
+        }
+
+
+        @Override
+        public void close() throws IOException {
+            if (temporary) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+/**
+ * Receives metrics collected while converting a single file. All methods have empty default implementations so
+ * implementations only need to override the metrics they are interested in. Instances are only used by a single thread
+ * at a time.
+ */
+public interface ConversionMetrics {
+
+    /**
+     * Implementation that ignores all metrics.
+     */
+    ConversionMetrics NONE = new ConversionMetrics() {};
+
+    String STAGE_DETECT = "detect";
+    String STAGE_PARSE = "parse";
+    String STAGE_CONVERT = "convert";
+    String STAGE_VALIDATE = "validate";
+    String STAGE_SERIALIZE = "serialize";
+    String STAGE_MERGE = "merge";
+    String STAGE_CHECK = "check";
+    String STAGE_REFERENCES = "references";
+    String WARNING_EMPTY_KEY = "emptyKey";
+    String WARNING_INVALID_ID_TYPE = "invalidIdType";
+    String WARNING_MISSING_DATA_TYPE = "missingDataType";
+    String WARNING_UNRESOLVED_REFERENCE = "unresolvedReference";
+    String WARNING_AMBIGUOUS_REFERENCE = "ambiguousReference";
+
+    /**
+     * Records the wall time spent in a processing stage. May be called multiple times for the same stage.
+     *
+     * @param stage name of the stage, e.g. {@link #STAGE_PARSE}
+     * @param durationNanos duration in nanoseconds
+     */
+    default void stage(String stage, long durationNanos) {}
+
+
+    /**
+     * Records how often a conversion rule matched and how many of the matched nodes have been modified. May be called
+     * multiple times for the same rule.
+     *
+     * @param rule name of the rule
+     * @param matched number of nodes matched by the rule
+     * @param modified number of nodes modified or removed by the rule
+     */
+    default void rule(String rule, long matched, long modified) {}
+
+
+    /**
+     * Records the number of bytes read.
+     *
+     * @param bytes number of bytes
+     */
+    default void bytesRead(long bytes) {}
+
+
+    /**
+     * Records the number of bytes written.
+     *
+     * @param bytes number of bytes
+     */
+    default void bytesWritten(long bytes) {}
+
+
+    /**
+     * Records how many string values have been read or created while converting and how many distinct instances have
+     * been allocated for them. The difference is the number of values that share an instance with an equal value.
+     *
+     * @param values number of string values
+     * @param distinct number of instances allocated for the values
+     */
+    default void strings(long values, long distinct) {}
+
+
+    /**
+     * Records how often a conversion may lose information or replace it with a default value, e.g. when removing an
+     * empty key. May be called multiple times for the same warning.
+     *
+     * @param warning name of the warning, e.g. {@link #WARNING_EMPTY_KEY}
+     * @param count number of affected nodes
+     */
+    default void warning(String warning, long count) {}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Collects the metrics of converting a single file.
+ */
+public class ConversionReport implements ConversionMetrics {
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private final String file;
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+    private final Map<String, long[]> rules = new LinkedHashMap<>();
+    private final Map<String, Long> warnings = new LinkedHashMap<>();
+    private boolean success;
+    private long bytesRead;
+    private long bytesWritten;
+    private long stringValues;
+    private long distinctStrings;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param file name of the file the report refers to; null for aggregated reports
+     */
+    public ConversionReport(String file) {
+        this.file = file;
+    }
+
+
+    @Override
+    public void stage(String stage, long durationNanos) {
+        stages.merge(stage, durationNanos, Long::sum);
+    }
+
+
+    @Override
+    public void rule(String rule, long matched, long modified) {
+        long[] counts = rules.computeIfAbsent(rule, x -> new long[2]);
+        counts[0] += matched;
+        counts[1] += modified;
+    }
+
+
+    @Override
+    public void bytesRead(long bytes) {
+        bytesRead += bytes;
+    }
+
+
+    @Override
+    public void bytesWritten(long bytes) {
+        bytesWritten += bytes;
+    }
+
+
+    @Override
+    public void strings(long values, long distinct) {
+        stringValues += values;
+        distinctStrings += distinct;
+    }
+
+
+    @Override
+    public void warning(String warning, long count) {
+        warnings.merge(warning, count, Long::sum);
+    }
+
+
+    public String getFile() {
+        return file;
+    }
+
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+
+    /**
+     * Gets the share of string values that did not require an instance of their own, see
+     * {@link ConversionMetrics#strings(long, long)}.
+     *
+     * @return the deduplication ratio between 0 and 1
+     */
+    public double getDeduplicationRatio() {
+        return stringValues == 0
+                ? 0
+                : (stringValues - distinctStrings) / (double) stringValues;
+    }
+
+
+    /**
+     * Gets the total duration of each stage.
+     *
+     * @return mapping of stage names to durations in nanoseconds
+     */
+    public Map<String, Long> getStages() {
+        return stages;
+    }
+
+
+    /**
+     * Gets how many nodes each rule has modified or removed.
+     *
+     * @return mapping of rule names to the number of modified nodes
+     */
+    public Map<String, Long> getModified() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        rules.forEach((rule, counts) -> result.put(rule, counts[1]));
+        return result;
+    }
+
+
+    /**
+     * Gets the number of nodes affected by each warning, see {@link ConversionMetrics#warning(String, long)}.
+     *
+     * @return mapping of warning names to the number of affected nodes
+     */
+    public Map<String, Long> getWarnings() {
+        return warnings;
+    }
+
+
+    /**
+     * Adds all metrics of another report to this one.
+     *
+     * @param other the other report
+     */
+    void add(ConversionReport other) {
+        other.stages.forEach(this::stage);
+        other.rules.forEach((rule, counts) -> rule(rule, counts[0], counts[1]));
+        other.warnings.forEach(this::warning);
+        bytesRead += other.bytesRead;
+        bytesWritten += other.bytesWritten;
+        stringValues += other.stringValues;
+        distinctStrings += other.distinctStrings;
+    }
+
+
+    /**
+     * Creates the JSON representation of the report. Durations are given in milliseconds.
+     *
+     * @return the JSON representation
+     */
+    ObjectNode toJson() {
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        if (file != null) {
+            result.put("file", file);
+            result.put("success", success);
+        }
+        result.put("bytesRead", bytesRead);
+        result.put("bytesWritten", bytesWritten);
+        result.putObject("strings")
+                .put("values", stringValues)
+                .put("distinct", distinctStrings)
+                .put("deduplicationRatio", getDeduplicationRatio());
+        ObjectNode stagesNode = result.putObject("stages");
+        stages.forEach((stage, duration) -> stagesNode.put(stage, duration / NANOS_PER_MILLI));
+        ObjectNode rulesNode = result.putObject("rules");
+        rules.forEach((rule, counts) -> rulesNode.putObject(rule)
+                .put("matched", counts[0])
+                .put("modified", counts[1]));
+        ObjectNode warningsNode = result.putObject("warnings");
+        warnings.forEach(warningsNode::put);
+        return result;
+    }
+}
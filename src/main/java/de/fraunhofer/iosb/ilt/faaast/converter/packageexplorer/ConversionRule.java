@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.MapFunction;
+
+
+/**
+ * A rule that is applied to a document during conversion in addition to the built-in conversion rules.
+ * <p>
+ * A single instance is shared by all conversions of a {@link PackageExplorerConverter}, therefore implementations must
+ * be thread-safe and should not keep any per-document state. Custom rules are either added via
+ * {@link PackageExplorerConverter.Builder#rule(ConversionRule)} or registered as a service by listing the implementing
+ * class in {@code META-INF/services/de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer.ConversionRule}. Registered
+ * rules are applied by the command line interface as well as the static methods of {@link PackageExplorerConverter}.
+ */
+public interface ConversionRule {
+
+    /**
+     * Gets the name of the rule used for logging and metrics.
+     *
+     * @return the name of the rule
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+
+    /**
+     * Applies the rule to a document.
+     *
+     * @param document the document to modify in place; already contains the result of all built-in rules and all custom
+     *            rules applied before this one
+     * @param metrics the metrics to report how often the rule matched and modified a node to
+     */
+    void apply(DocumentContext document, ConversionMetrics metrics);
+
+
+    /**
+     * Creates a rule that removes all nodes matching a JsonPath expression.
+     *
+     * @param name the name of the rule
+     * @param path the JsonPath expression; compiled once when creating the rule
+     * @return the rule
+     */
+    static ConversionRule delete(String name, String path) {
+        return new JsonPathRule(name, path, null);
+    }
+
+
+    /**
+     * Creates a rule that replaces all nodes matching a JsonPath expression with the result of a function.
+     *
+     * @param name the name of the rule
+     * @param path the JsonPath expression; compiled once when creating the rule
+     * @param function the function to apply to each matching node; must be thread-safe
+     * @return the rule
+     */
+    static ConversionRule map(String name, String path, MapFunction function) {
+        return new JsonPathRule(name, path, function);
+    }
+}
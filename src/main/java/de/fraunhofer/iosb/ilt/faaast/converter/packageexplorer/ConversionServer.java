@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.adminshell.aas.v3.dataformat.DeserializationException;
+import io.adminshell.aas.v3.dataformat.SerializationException;
+import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+import picocli.CommandLine.Option;
+
+
+/**
+ * Exposes the converter via a local HTTP server so that documents can be converted on demand without starting a new JVM
+ * for each document.
+ *
+ * <p>Endpoints:
+ * <ul>
+ * <li>{@code POST /convert}: converts the Package Explorer JSON document in the request body and returns the converted
+ * document. The request body is parsed directly from the connection and the result is written to the connection using
+ * chunked transfer encoding.</li>
+ * <li>{@code GET /health}: returns the status of the server together with throughput, latency percentiles and
+ * conversion metrics.</li>
+ * </ul>
+ */
+@CommandLine.Command(name = "serve", mixinStandardHelpOptions = true, description = "Starts an HTTP server that converts documents on demand.", usageHelpAutoWidth = true)
+public class ConversionServer implements Callable<Integer>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversionServer.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String PATH_CONVERT = "/convert";
+    private static final String PATH_HEALTH = "/health";
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    @Option(names = "--host", defaultValue = "localhost", description = "Host name or address to bind to (default: ${DEFAULT-VALUE})")
+    private String host;
+
+    @Option(names = {
+            "-p",
+            "--port"
+    }, defaultValue = "8080", description = "Port to listen on (default: ${DEFAULT-VALUE})")
+    private int port;
+
+    @Option(names = "--engine", defaultValue = "SINGLE_PASS", description = "Engine used for conversion, valid values: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private ConversionEngine engine;
+
+    @Option(names = "--validate", description = "Test the conversion result with FA³ST and respond with status 422 if it is not valid")
+    private boolean validate;
+
+    @Option(names = "--max-concurrent", description = "Maximum number of conversions running at the same time (default: number of available processors)")
+    private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--max-waiting", description = "Maximum number of requests waiting for a conversion to finish; further requests are rejected with status 503 "
+            + "(default: twice the maximum number of concurrent conversions)")
+    private Integer maxWaiting;
+
+    @Option(names = "--wait-timeout", defaultValue = "30000", description = "Time in milliseconds a request waits for a conversion to finish before it is rejected "
+            + "with status 503 (default: ${DEFAULT-VALUE})")
+    private long waitTimeout;
+
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private PackageExplorerConverter converter;
+    private Semaphore permits;
+    private ExecutorService executor;
+    private HttpServer server;
+
+    @Override
+    public Integer call() {
+        if (maxConcurrent < 1) {
+            LOGGER.error("Maximum number of concurrent conversions must be at least 1");
+            return 1;
+        }
+        try {
+            start();
+        }
+        catch (IOException e) {
+            LOGGER.error("Error starting server", e);
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+        try {
+            stopped.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+
+    /**
+     * Starts the server.
+     *
+     * @throws IOException if the server cannot be started, e.g. because the port is already in use
+     */
+    public void start() throws IOException {
+        converter = PackageExplorerConverter.getDefault(engine);
+        permits = new Semaphore(maxConcurrent, true);
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(PATH_CONVERT, handler(this::handleConvert));
+        server.createContext(PATH_HEALTH, handler(this::handleHealth));
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info("Server started at http://{}:{} (engine: {}, validate: {}, max. concurrent conversions: {})",
+                host,
+                server.getAddress().getPort(),
+                engine,
+                validate,
+                maxConcurrent);
+        LOGGER.info("Convert documents via POST {}, get status and metrics via GET {}", PATH_CONVERT, PATH_HEALTH);
+    }
+
+
+    /**
+     * Stops the server. Running conversions are given a short time to finish.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            LOGGER.info("Stopping server...");
+            server.stop(STOP_DELAY_SECONDS);
+            executor.shutdownNow();
+            server = null;
+        }
+        stopped.countDown();
+    }
+
+
+    private static HttpHandler handler(HttpHandler handler) {
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            }
+            catch (Exception e) {
+                LOGGER.warn("Error handling request", e);
+                if (exchange.getResponseCode() < 0) {
+                    sendError(exchange, 500, String.format("internal error: %s", e.getMessage()));
+                }
+            }
+            finally {
+                exchange.close();
+            }
+        };
+    }
+
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "method not allowed - use GET");
+            return;
+        }
+        ObjectNode result = MAPPER.createObjectNode()
+                .put("status", "UP")
+                .put("engine", engine.name())
+                .put("validate", validate)
+                .put("running", maxConcurrent - permits.availablePermits())
+                .put("waiting", waiting.get())
+                .put("maxConcurrent", maxConcurrent);
+        result.setAll(metrics.toJson());
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
+        exchange.sendResponseHeaders(200, 0);
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(exchange.getResponseBody(), result);
+    }
+
+
+    private void handleConvert(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "method not allowed - use POST");
+            return;
+        }
+        long start = System.nanoTime();
+        if (!acquire()) {
+            metrics.rejected();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "too many concurrent conversions");
+            return;
+        }
+        ConversionReport report = new ConversionReport(null);
+        try {
+            report.setSuccess(convert(exchange, report));
+        }
+        finally {
+            permits.release();
+            metrics.completed(report, System.nanoTime() - start);
+        }
+    }
+
+
+    private boolean acquire() {
+        int limit = maxWaiting != null
+                ? maxWaiting
+                : 2 * maxConcurrent;
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (waiting.incrementAndGet() > limit) {
+            waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(waitTimeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+
+    private boolean convert(HttpExchange exchange, ConversionReport report) throws IOException {
+        long start = System.nanoTime();
+        JsonNode document;
+        CanonicalNodeFactory nodeFactory = new CanonicalNodeFactory();
+        try (JsonParser parser = MAPPER.getFactory().createParser(exchange.getRequestBody())) {
+            document = MAPPER.reader().with(nodeFactory).readTree(parser);
+            report.bytesRead(Math.max(parser.getCurrentLocation().getByteOffset(), 0));
+        }
+        catch (JsonProcessingException e) {
+            sendError(exchange, 400, String.format("request body is not valid JSON: %s", e.getOriginalMessage()));
+            return false;
+        }
+        if (document == null || !document.isObject()) {
+            sendError(exchange, 400, "request body must be a JSON object");
+            return false;
+        }
+        report.stage(ConversionMetrics.STAGE_PARSE, System.nanoTime() - start);
+        start = System.nanoTime();
+        JsonNode converted = converter.convert(document, report);
+        nodeFactory.reportTo(report);
+        report.stage(ConversionMetrics.STAGE_CONVERT, System.nanoTime() - start);
+        AssetAdministrationShellEnvironment environment = null;
+        if (validate) {
+            start = System.nanoTime();
+            try {
+                environment = new JsonTreeDeserializer().read(converted);
+            }
+            catch (DeserializationException e) {
+                sendError(exchange, 422, String.format("conversion result could not be deserialized using FA³ST: %s", e.getMessage()));
+                return false;
+            }
+            report.stage(ConversionMetrics.STAGE_VALIDATE, System.nanoTime() - start);
+        }
+        start = System.nanoTime();
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
+        exchange.sendResponseHeaders(200, 0);
+        CountingOutputStream out = new CountingOutputStream(exchange.getResponseBody());
+        if (environment != null) {
+            try {
+                new StreamingJsonSerializer().write(out, environment);
+            }
+            catch (SerializationException e) {
+                throw new IOException("serialization with FA³ST failed", e);
+            }
+        }
+        else {
+            PackageExplorerConverter.write(converted, out);
+        }
+        out.flush();
+        report.stage(ConversionMetrics.STAGE_SERIALIZE, System.nanoTime() - start);
+        report.bytesWritten(out.count);
+        return true;
+    }
+
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = MAPPER.writeValueAsBytes(MAPPER.createObjectNode().put("error", message));
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Watches a directory (non-recursively) for files that are created, modified or deleted.
+ *
+ * <p>Writing a file typically causes multiple modification events, and a file may still be incomplete when the first
+ * event is received. Therefore, a created or modified file is only reported once its size and last modification time
+ * have not changed for a given quiet period.
+ */
+class DirectoryWatcher implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryWatcher.class);
+    private static final long MIN_POLL_INTERVAL = 10;
+    private final Path directory;
+    private final long quietPeriod;
+    private final Predicate<Path> filter;
+    private final WatchService watchService;
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
+
+    /**
+     * Creates a new instance and starts watching the directory. Events occurring after this constructor returns are
+     * reported by {@link #run(Listener)}.
+     *
+     * @param directory the directory to watch
+     * @param quietPeriod the time a file must remain unchanged before it is reported
+     * @param filter filter for files to report
+     * @throws IOException if the directory cannot be watched
+     */
+    DirectoryWatcher(Path directory, Duration quietPeriod, Predicate<Path> filter) throws IOException {
+        this.directory = directory;
+        this.quietPeriod = quietPeriod.toNanos();
+        this.filter = filter;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+
+
+    /**
+     * Reports changes to the listener until this watcher is closed or the current thread is interrupted. Listener
+     * methods are called from the current thread.
+     *
+     * @param listener the listener
+     * @throws IOException if the directory can no longer be watched, e.g. because it has been deleted
+     */
+    void run(Listener listener) throws IOException {
+        long pollInterval = Math.max(MIN_POLL_INTERVAL, TimeUnit.NANOSECONDS.toMillis(quietPeriod) / 2);
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(pollInterval, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event: key.pollEvents()) {
+                        handle(event, listener);
+                    }
+                    if (!key.reset()) {
+                        throw new IOException(String.format("directory can no longer be watched (directory: %s)", directory));
+                    }
+                }
+                reportCompleted(listener);
+            }
+        }
+        catch (ClosedWatchServiceException e) {
+            // closed
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private void handle(WatchEvent<?> event, Listener listener) throws IOException {
+        if (event.kind() == OVERFLOW) {
+            LOGGER.debug("Events for directory '{}' have been lost - rescanning directory", directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(filter).forEach(x -> pending.put(x, new Pending()));
+            }
+            return;
+        }
+        Path file = directory.resolve((Path) event.context());
+        if (!filter.test(file)) {
+            return;
+        }
+        if (event.kind() == ENTRY_DELETE) {
+            pending.remove(file);
+            listener.deleted(file);
+        }
+        else {
+            pending.put(file, new Pending());
+        }
+    }
+
+
+    private void reportCompleted(Listener listener) {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Pending>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Pending> entry = iterator.next();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(entry.getKey(), BasicFileAttributes.class);
+            }
+            catch (IOException e) {
+                // deleted in the meantime, reported via ENTRY_DELETE
+                iterator.remove();
+                continue;
+            }
+            if (!attributes.isRegularFile()) {
+                iterator.remove();
+            }
+            else if (entry.getValue().update(attributes, now)) {
+                continue;
+            }
+            else if (now - entry.getValue().since >= quietPeriod) {
+                iterator.remove();
+                listener.changed(entry.getKey());
+            }
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Listener for changes in a watched directory.
+     */
+    interface Listener {
+
+        /**
+         * Called when a file has been created or modified and has not changed since for the quiet period.
+         *
+         * @param file the file
+         */
+        void changed(Path file);
+
+
+        /**
+         * Called when a file has been deleted.
+         *
+         * @param file the file
+         */
+        void deleted(Path file);
+    }
+
+    private static class Pending {
+
+        private long size = -1;
+        private FileTime lastModified;
+        private long since;
+
+        /**
+         * Updates the state of the file.
+         *
+         * @param attributes the current attributes of the file
+         * @param now the current time
+         * @return true if the file has changed since the last update, otherwise false
+         */
+        private boolean update(BasicFileAttributes attributes, long now) {
+            if (size == attributes.size() && Objects.equals(lastModified, attributes.lastModifiedTime())) {
+                return false;
+            }
+            size = attributes.size();
+            lastModified = attributes.lastModifiedTime();
+            since = now;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import io.adminshell.aas.v3.dataformat.SerializationException;
+import io.adminshell.aas.v3.model.AssetAdministrationShell;
+import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
+import io.adminshell.aas.v3.model.ConceptDescription;
+import io.adminshell.aas.v3.model.Identifiable;
+import io.adminshell.aas.v3.model.Submodel;
+import io.adminshell.aas.v3.model.impl.DefaultAssetAdministrationShellEnvironment;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+
+/**
+ * Merges multiple environments into a single one.
+ *
+ * <p>Identifiables are indexed by their identifier and compared by a content fingerprint (SHA-256 of their FA³ST JSON
+ * serialization) so each element is serialized exactly once and merging is linear in the total number of elements.
+ * Identifiables with identical content are only contained once in the result, identifiables with the same identifier
+ * but different content are all kept and reported as duplicates.
+ */
+public class EnvironmentMerger {
+
+    private final StreamingJsonSerializer serializer = new StreamingJsonSerializer();
+    private final Map<String, Integer> duplicateCounter = new HashMap<>();
+    private final IdentifiableIndex<AssetAdministrationShell> assetAdministrationShells = new IdentifiableIndex<>(duplicateCounter);
+    private final IdentifiableIndex<ConceptDescription> conceptDescriptions = new IdentifiableIndex<>(duplicateCounter);
+    private final IdentifiableIndex<Submodel> submodels = new IdentifiableIndex<>(duplicateCounter);
+    private int count;
+
+    /**
+     * Adds an environment to the merge result.
+     *
+     * @param environment the environment to add
+     */
+    public void add(AssetAdministrationShellEnvironment environment) {
+        assetAdministrationShells.add(entries(environment.getAssetAdministrationShells()));
+        conceptDescriptions.add(entries(environment.getConceptDescriptions()));
+        submodels.add(entries(environment.getSubmodels()));
+        count++;
+    }
+
+
+    /**
+     * Creates the merged environment of all environments added so far.
+     *
+     * @return the merged environment
+     */
+    public AssetAdministrationShellEnvironment build() {
+        return new DefaultAssetAdministrationShellEnvironment.Builder()
+                .assetAdministrationShells(new ArrayList<>(assetAdministrationShells.getElements()))
+                .conceptDescriptions(new ArrayList<>(conceptDescriptions.getElements()))
+                .submodels(new ArrayList<>(submodels.getElements()))
+                .build();
+    }
+
+
+    /**
+     * Gets the number of environments added.
+     *
+     * @return the number of environments added
+     */
+    public int getCount() {
+        return count;
+    }
+
+
+    /**
+     * Gets the identifiers of all elements that have been found with different content in multiple environments
+     * together with the number of conflicts found.
+     *
+     * @return mapping of identifiers to number of conflicts
+     */
+    public Map<String, Integer> getDuplicates() {
+        return duplicateCounter;
+    }
+
+
+    private <T extends Identifiable> List<IdentifiableIndex.Entry<T>> entries(List<T> identifiables) {
+        return identifiables.stream()
+                .map(x -> new IdentifiableIndex.Entry<>(x.getIdentification().getIdentifier(), fingerprint(x), x))
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Computes the fingerprint of an identifiable.
+     *
+     * @param identifiable the identifiable
+     * @return the fingerprint
+     */
+    private String fingerprint(Identifiable identifiable) {
+        DigestOutputStream out = Fingerprint.newOutputStream();
+        try {
+            serializer.write(out, identifiable);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (SerializationException e) {
+            throw new IllegalArgumentException(String.format("error computing fingerprint (identifier: %s)", identifiable.getIdentification().getIdentifier()), e);
+        }
+        return Fingerprint.finish(out.getMessageDigest());
+    }
+}
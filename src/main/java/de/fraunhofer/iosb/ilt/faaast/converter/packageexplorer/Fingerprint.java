@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Computes content fingerprints (SHA-256, hex-encoded).
+ */
+final class Fingerprint {
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Fingerprint() {}
+
+
+    /**
+     * Computes the fingerprint of the content of a file.
+     *
+     * @param file the file
+     * @return the hex-encoded fingerprint
+     * @throws IOException if reading the file fails
+     */
+    static String of(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, length);
+            }
+        }
+        return finish(digest);
+    }
+
+
+    /**
+     * Creates an output stream that discards all data written to it and only updates the fingerprint.
+     *
+     * @return a new output stream
+     */
+    static DigestOutputStream newOutputStream() {
+        return new DigestOutputStream(OutputStream.nullOutputStream(), newDigest());
+    }
+
+
+    /**
+     * Creates a new message digest for computing fingerprints.
+     *
+     * @return a new message digest
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(String.format("fingerprint algorithm not available (algorithm: %s)", ALGORITHM), e);
+        }
+    }
+
+
+    /**
+     * Completes the fingerprint computation and resets the digest.
+     *
+     * @param digest the digest
+     * @return the hex-encoded fingerprint
+     */
+    static String finish(MessageDigest digest) {
+        byte[] hash = digest.digest();
+        char[] result = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            result[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(result);
+    }
+}
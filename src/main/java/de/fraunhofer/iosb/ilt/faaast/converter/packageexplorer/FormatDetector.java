@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.adminshell.aas.v3.dataformat.core.util.AasUtils;
+import io.adminshell.aas.v3.model.KeyType;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Detects whether a JSON document has been exported by Package Explorer and therefore needs to be converted.
+ *
+ * <p>The document is read as a token stream until the first Package Explorer-specific element is found, i.e. for
+ * Package Explorer exports typically only the first few tokens are read. Documents not containing any of these elements
+ * are read completely.
+ */
+public class FormatDetector {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final Set<String> VALID_ID_TYPES = Stream.of(KeyType.values())
+            .map(x -> AasUtils.serializeEnumName(x.name()))
+            .collect(Collectors.toSet());
+
+    private FormatDetector() {}
+
+
+    /**
+     * Detects the format of a JSON file.
+     *
+     * @param input the input file
+     * @return the detection result
+     * @throws IOException if reading the input fails
+     */
+    public static Result detect(File input) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(input)) {
+            return detect(parser);
+        }
+    }
+
+
+    /**
+     * Detects the format of a JSON document.
+     *
+     * @param input the input; not closed by this method
+     * @return the detection result
+     * @throws IOException if reading the input fails
+     */
+    public static Result detect(InputStream input) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(input)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return detect(parser);
+        }
+    }
+
+
+    /**
+     * Detects the format of an already parsed JSON document.
+     *
+     * @param input the input
+     * @return the detection result
+     * @throws IOException if traversing the input fails
+     */
+    public static Result detect(JsonNode input) throws IOException {
+        try (JsonParser parser = input.traverse()) {
+            return detect(parser);
+        }
+    }
+
+
+    private static Result detect(JsonParser parser) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token != JsonToken.FIELD_NAME) {
+                continue;
+            }
+            String name = parser.currentName();
+            switch (name) {
+                case TreeWalkingTransformer.ASSETS: {
+                    if (parser.getParsingContext().getParent().inRoot()) {
+                        return Result.packageExplorer("found top-level 'assets'");
+                    }
+                    break;
+                }
+                case "dataObjectType":
+                case TreeWalkingTransformer.LANG_STRING:
+                case TreeWalkingTransformer.SUBMODEL_ELEMENT: {
+                    return Result.packageExplorer(String.format("found '%s'", name));
+                }
+                case TreeWalkingTransformer.INDEX:
+                case TreeWalkingTransformer.LOCAL: {
+                    if (isKey(parser.getParsingContext())) {
+                        return Result.packageExplorer(String.format("found 'keys[].%s'", name));
+                    }
+                    break;
+                }
+                case TreeWalkingTransformer.ID_TYPE: {
+                    if (parser.nextToken() == JsonToken.VALUE_STRING && !VALID_ID_TYPES.contains(parser.getText())) {
+                        return Result.packageExplorer(String.format("found idType '%s'", parser.getText()));
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        return new Result(InputFormat.FAAAST, "no Package Explorer-specific elements found");
+    }
+
+
+    private static boolean isKey(JsonStreamContext context) {
+        JsonStreamContext array = context.getParent();
+        return array != null
+                && array.inArray()
+                && array.getParent() != null
+                && TreeWalkingTransformer.KEYS.equals(array.getParent().getCurrentName());
+    }
+
+    /**
+     * Result of a format detection.
+     */
+    public static class Result {
+
+        private final InputFormat format;
+        private final String reason;
+
+        private Result(InputFormat format, String reason) {
+            this.format = format;
+            this.reason = reason;
+        }
+
+
+        private static Result packageExplorer(String reason) {
+            return new Result(InputFormat.PACKAGE_EXPLORER, reason);
+        }
+
+
+        /**
+         * Gets the detected format.
+         *
+         * @return the detected format
+         */
+        public InputFormat getFormat() {
+            return format;
+        }
+
+
+        /**
+         * Gets a human-readable explanation why the format has been detected.
+         *
+         * @return the reason
+         */
+        public String getReason() {
+            return reason;
+        }
+
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s)", format, reason);
+        }
+    }
+}
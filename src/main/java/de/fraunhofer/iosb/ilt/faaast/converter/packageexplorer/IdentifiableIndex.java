@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Index of the identifiables of a single type used when merging environments.
+ *
+ * <p>Elements are identified by their identifier and compared by a content fingerprint. Duplicates are counted the same
+ * way a pairwise reduction would do, i.e. when adding an environment each element with that identifier in the result
+ * so far that differs from the first element with that identifier in the new environment counts as one conflict. The
+ * result so far contains all elements of the first environment including identical ones, and each distinct element
+ * only once after adding further environments.
+ *
+ * @param <T> type of the values stored for each element
+ */
+class IdentifiableIndex<T> {
+
+    private final Map<String, Integer> duplicateCounter;
+    private final List<T> elements = new ArrayList<>();
+    private final Map<String, Map<String, Integer>> variants = new HashMap<>();
+    private boolean first = true;
+    private boolean distinct;
+
+    IdentifiableIndex(Map<String, Integer> duplicateCounter) {
+        this.duplicateCounter = duplicateCounter;
+    }
+
+
+    /**
+     * Adds all elements of this type contained in a single environment.
+     *
+     * @param entries the elements
+     */
+    void add(List<Entry<T>> entries) {
+        if (!first) {
+            countDuplicates(entries);
+            if (!distinct) {
+                variants.values().forEach(x -> x.replaceAll((fingerprint, multiplicity) -> 1));
+                distinct = true;
+            }
+        }
+        for (Entry<T> entry: entries) {
+            Map<String, Integer> variantsOfId = variants.computeIfAbsent(entry.id, x -> new LinkedHashMap<>());
+            // only the first environment is used as-is, all later results are distinct
+            boolean added = first
+                    ? variantsOfId.merge(entry.fingerprint, 1, Integer::sum) == 1
+                    : variantsOfId.putIfAbsent(entry.fingerprint, 1) == null;
+            if (added) {
+                elements.add(entry.value);
+            }
+        }
+        first = false;
+    }
+
+
+    /**
+     * Gets the merged elements, i.e. all distinct elements in order of their first occurrence.
+     *
+     * @return the merged elements
+     */
+    List<T> getElements() {
+        return elements;
+    }
+
+
+    private void countDuplicates(List<Entry<T>> entries) {
+        Set<String> ids = new HashSet<>();
+        for (Entry<T> entry: entries) {
+            if (!ids.add(entry.id) || !variants.containsKey(entry.id)) {
+                continue;
+            }
+            Map<String, Integer> variantsOfId = variants.get(entry.id);
+            int conflicts = variantsOfId.values().stream().mapToInt(Integer::intValue).sum()
+                    - variantsOfId.getOrDefault(entry.fingerprint, 0);
+            if (conflicts > 0) {
+                duplicateCounter.merge(entry.id, conflicts, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * A single element of an environment.
+     *
+     * @param <T> type of the value
+     */
+    static class Entry<T> {
+
+        private final String id;
+        private final String fingerprint;
+        private final T value;
+
+        Entry(String id, String fingerprint, T value) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.value = value;
+        }
+    }
+}
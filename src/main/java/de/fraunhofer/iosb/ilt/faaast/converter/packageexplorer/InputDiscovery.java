@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+
+/**
+ * Finds the input files in a directory, optionally including all subdirectories. Subdirectories are listed in parallel
+ * using the common fork/join pool. Symbolic links to directories are not followed.
+ *
+ * <p>Include and exclude patterns use the glob syntax of {@link FileSystems#getDefault()}. Patterns that do not contain
+ * a '/' are matched against the file name, all other patterns against the path relative to the input directory, e.g.
+ * {@code *.aas.json} matches all such files at any depth while {@code 2023/**} matches all files below the directory
+ * {@code 2023}. Subdirectories matching an exclude pattern are skipped entirely.
+ */
+class InputDiscovery {
+
+    private static final String SEPARATOR = "/";
+    private final Path root;
+    private final boolean recursive;
+    private final Predicate<String> fileNameFilter;
+    private final List<Glob> includes;
+    private final List<Glob> excludes;
+    private final Shard shard;
+    private final Path skippedDirectory;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param root the input directory
+     * @param recursive whether to include subdirectories
+     * @param fileNameFilter filter for supported file names
+     * @param includes glob patterns of files to include; if empty, all supported files are included
+     * @param excludes glob patterns of files and directories to exclude
+     * @param shard the shard to select files for; null to select all files
+     * @param skippedDirectory directory to skip, e.g. the output directory; may be null
+     */
+    InputDiscovery(Path root, boolean recursive, Predicate<String> fileNameFilter, List<String> includes, List<String> excludes, Shard shard, Path skippedDirectory) {
+        this.root = root;
+        this.recursive = recursive;
+        this.fileNameFilter = fileNameFilter;
+        this.includes = includes.stream().map(Glob::new).collect(Collectors.toList());
+        this.excludes = excludes.stream().map(Glob::new).collect(Collectors.toList());
+        this.shard = shard;
+        this.skippedDirectory = skippedDirectory != null
+                ? skippedDirectory.toAbsolutePath().normalize()
+                : null;
+    }
+
+
+    /**
+     * Finds all input files.
+     *
+     * @return the input files sorted by their path relative to the input directory
+     * @throws IOException if listing a directory fails
+     */
+    List<File> discover() throws IOException {
+        List<Path> files;
+        try {
+            files = new ListTask(root).invoke();
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return files.stream()
+                .sorted(Comparator.comparing(this::relativize))
+                .map(Path::toFile)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Checks whether a single file is an input file, e.g. when it has been created after discovery.
+     *
+     * @param file the file
+     * @return true if the file is an input file, otherwise false
+     */
+    boolean accepts(Path file) {
+        String relativePath = relativize(file);
+        if (!fileNameFilter.test(file.getFileName().toString())
+                || (!includes.isEmpty() && includes.stream().noneMatch(x -> x.matches(relativePath)))
+                || excludes.stream().anyMatch(x -> x.matches(relativePath))) {
+            return false;
+        }
+        return shard == null || shard.contains(relativePath);
+    }
+
+
+    /**
+     * Gets the path of a file relative to the input directory using '/' as separator independent of the platform.
+     *
+     * @param file the file
+     * @return the relative path
+     */
+    String relativize(Path file) {
+        Path relative = root.relativize(file);
+        List<String> names = new ArrayList<>();
+        relative.forEach(x -> names.add(x.toString()));
+        return String.join(SEPARATOR, names);
+    }
+
+
+    private boolean isSkipped(Path directory) {
+        if (skippedDirectory != null && skippedDirectory.equals(directory.toAbsolutePath().normalize())) {
+            return true;
+        }
+        String relativePath = relativize(directory);
+        return excludes.stream().anyMatch(x -> x.matches(relativePath));
+    }
+
+    private class ListTask extends RecursiveTask<List<Path>> {
+
+        private final Path directory;
+
+        private ListTask(Path directory) {
+            this.directory = directory;
+        }
+
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> result = new ArrayList<>();
+            List<ListTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry: entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        if (recursive && !isSkipped(entry)) {
+                            ListTask subtask = new ListTask(entry);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                        }
+                    }
+                    else if (Files.isRegularFile(entry) && accepts(entry)) {
+                        result.add(entry);
+                    }
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (ListTask subtask: subtasks) {
+                result.addAll(subtask.join());
+            }
+            return result;
+        }
+    }
+
+    private static class Glob {
+
+        private final PathMatcher matcher;
+        private final boolean matchFileName;
+
+        private Glob(String pattern) {
+            this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            this.matchFileName = !pattern.contains(SEPARATOR);
+        }
+
+
+        private boolean matches(String relativePath) {
+            String path = matchFileName
+                    ? relativePath.substring(relativePath.lastIndexOf(SEPARATOR) + 1)
+                    : relativePath;
+            return matcher.matches(Path.of(path));
+        }
+    }
+}
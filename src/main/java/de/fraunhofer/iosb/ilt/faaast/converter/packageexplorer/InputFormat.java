@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+/**
+ * Formats an input file can be in.
+ */
+public enum InputFormat {
+    /**
+     * JSON as exported by AASX Package Explorer, i.e. requires conversion.
+     */
+    PACKAGE_EXPLORER,
+    /**
+     * JSON that does not contain any Package Explorer-specific elements and therefore can be used with FA³ST as-is.
+     */
+    FAAAST
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.MapFunction;
+import com.jayway.jsonpath.TypeRef;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Rule based on a precompiled JsonPath expression that either removes or maps all matching nodes.
+ */
+class JsonPathRule implements ConversionRule {
+
+    private static final TypeRef<List<JsonNode>> TYPE_JSON_NODE_LIST = new TypeRef<List<JsonNode>>() {};
+    private final String name;
+    private final JsonPath path;
+    private final MapFunction function;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param name the name of the rule
+     * @param path the JsonPath expression
+     * @param function the function to apply to matching nodes, or null to remove them
+     */
+    JsonPathRule(String name, String path, MapFunction function) {
+        this.name = Objects.requireNonNull(name, "name must be non-null");
+        this.path = JsonPath.compile(Objects.requireNonNull(path, "path must be non-null"));
+        this.function = function;
+    }
+
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+
+    @Override
+    public void apply(DocumentContext document, ConversionMetrics metrics) {
+        if (function == null) {
+            List<JsonNode> elements = document.read(path, TYPE_JSON_NODE_LIST);
+            int count = elements == null ? 0 : elements.size();
+            metrics.rule(name, count, count);
+            if (count > 0) {
+                document.delete(path);
+            }
+            return;
+        }
+        AtomicLong matched = new AtomicLong();
+        AtomicLong modified = new AtomicLong();
+        document.map(path, (value, config) -> {
+            Object result = function.map(value, config);
+            matched.incrementAndGet();
+            if (!Objects.equals(value, result)) {
+                modified.incrementAndGet();
+            }
+            return result;
+        });
+        metrics.rule(name, matched.get(), modified.get());
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s)", name, path.getPath());
+    }
+}
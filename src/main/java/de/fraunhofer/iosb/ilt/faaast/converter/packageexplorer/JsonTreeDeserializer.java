@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.adminshell.aas.v3.dataformat.DeserializationException;
+import io.adminshell.aas.v3.dataformat.json.JsonDeserializer;
+import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
+
+
+/**
+ * FA³ST JSON deserializer that can bind an already parsed Jackson tree to the AAS model.
+ */
+public class JsonTreeDeserializer extends JsonDeserializer {
+
+    /**
+     * Binds a Jackson tree to an {@link AssetAdministrationShellEnvironment}.
+     *
+     * @param node the tree
+     * @return the environment
+     * @throws DeserializationException if the tree does not represent a valid environment
+     */
+    public AssetAdministrationShellEnvironment read(JsonNode node) throws DeserializationException {
+        AssetAdministrationShellEnvironment result;
+        try {
+            result = mapper.treeToValue(node, AssetAdministrationShellEnvironment.class);
+        }
+        catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new DeserializationException("error deserializing AssetAdministrationShellEnvironment", e);
+        }
+        if (result == null) {
+            throw new DeserializationException("error deserializing AssetAdministrationShellEnvironment - input is empty");
+        }
+        return result;
+    }
+}
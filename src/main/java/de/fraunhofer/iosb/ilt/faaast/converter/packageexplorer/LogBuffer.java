@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Allows to buffer log output of tasks executed in parallel so that it can be written in a defined order afterwards.
+ *
+ * <p>{@link #install()} wraps all appenders currently attached to any logger. Log events created by a thread while
+ * executing {@link #capture(Callable)} are held back and only passed to the original appenders when calling
+ * {@link Captured#flush()}. Log events created outside of {@link #capture(Callable)} are passed through immediately.
+ */
+final class LogBuffer {
+
+    private static final ThreadLocal<List<Runnable>> BUFFER = new ThreadLocal<>();
+
+    private LogBuffer() {}
+
+
+    /**
+     * Wraps all appenders of all loggers to support buffering.
+     */
+    static void install() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        for (Logger logger: context.getLoggerList()) {
+            List<Appender<ILoggingEvent>> appenders = new ArrayList<>();
+            Iterator<Appender<ILoggingEvent>> iterator = logger.iteratorForAppenders();
+            iterator.forEachRemaining(appenders::add);
+            for (Appender<ILoggingEvent> appender: appenders) {
+                if (appender instanceof BufferingAppender) {
+                    continue;
+                }
+                logger.detachAppender(appender);
+                BufferingAppender wrapper = new BufferingAppender(appender);
+                wrapper.setContext(context);
+                wrapper.setName(appender.getName());
+                wrapper.start();
+                logger.addAppender(wrapper);
+            }
+        }
+    }
+
+
+    /**
+     * Executes a task while buffering all log output of the current thread.
+     *
+     * @param <T> type of the result
+     * @param task the task to execute
+     * @return the result of the task including the buffered log output
+     */
+    static <T> Captured<T> capture(Callable<T> task) {
+        List<Runnable> events = new ArrayList<>();
+        BUFFER.set(events);
+        try {
+            return new Captured<>(task.call(), null, events);
+        }
+        catch (Exception e) {
+            return new Captured<>(null, e, events);
+        }
+        finally {
+            BUFFER.remove();
+        }
+    }
+
+    /**
+     * Result of a task executed with buffered log output.
+     *
+     * @param <T> type of the result
+     */
+    static class Captured<T> {
+
+        private final T value;
+        private final Exception error;
+        private final List<Runnable> events;
+
+        private Captured(T value, Exception error, List<Runnable> events) {
+            this.value = value;
+            this.error = error;
+            this.events = events;
+        }
+
+
+        /**
+         * Writes the buffered log output to the original appenders, or adds it to the buffer of the current thread if
+         * it is executing {@link #capture(Callable)} itself.
+         */
+        void flush() {
+            List<Runnable> buffer = BUFFER.get();
+            if (buffer != null) {
+                buffer.addAll(events);
+            }
+            else {
+                events.forEach(Runnable::run);
+            }
+            events.clear();
+        }
+
+
+        T getValue() {
+            return value;
+        }
+
+
+        Exception getError() {
+            return error;
+        }
+    }
+
+    private static class BufferingAppender extends AppenderBase<ILoggingEvent> {
+
+        private final Appender<ILoggingEvent> delegate;
+
+        private BufferingAppender(Appender<ILoggingEvent> delegate) {
+            this.delegate = delegate;
+        }
+
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            List<Runnable> buffer = BUFFER.get();
+            if (buffer == null) {
+                delegate.doAppend(event);
+                return;
+            }
+            event.prepareForDeferredProcessing();
+            buffer.add(() -> delegate.doAppend(event));
+        }
+    }
+}
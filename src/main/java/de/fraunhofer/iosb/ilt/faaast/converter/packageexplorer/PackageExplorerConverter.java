@@ -14,90 +14,444 @@
  */
 package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.MapFunction;
 import com.jayway.jsonpath.Option;
 import com.jayway.jsonpath.TypeRef;
 import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import io.adminshell.aas.v3.dataformat.DeserializationException;
 import io.adminshell.aas.v3.dataformat.core.util.AasUtils;
+import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
 import io.adminshell.aas.v3.model.KeyType;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class PackageExplorerConverter {
+/**
+ * Converts documents from the AASX Package Explorer JSON format to the FA³ST JSON format.
+ * <p>
+ * Instances are immutable and thread-safe and can therefore be created once and reused for any number of conversions,
+ * see {@link #builder()}. Besides the built-in conversion rules, an instance applies custom {@link ConversionRule}s in
+ * the order they have been added. The static methods use a shared instance per {@link ConversionEngine} that applies all
+ * rules registered as a service.
+ * <p>
+ * A converter that converts elements in parallel (see {@link Builder#parallelism(int)}) owns a thread pool that is
+ * shared by all conversions and released by {@link #close()}.
+ */
+public class PackageExplorerConverter implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PackageExplorerConverter.class);
     private static final TypeRef<List<ObjectNode>> TYPE_OBJECT_NODE_LIST = new TypeRef<List<ObjectNode>>() {};
     private static final TypeRef<List<JsonNode>> TYPE_JSON_NODE_LIST = new TypeRef<List<JsonNode>>() {};
     private static final KeyType DEFAULT_KEY_TYPE = KeyType.IRI;
-    private final DocumentContext document;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Configuration JSON_PATH_CONFIGURATION = new Configuration.ConfigurationBuilder()
+            .jsonProvider(new JacksonJsonNodeJsonProvider())
+            .mappingProvider(new JacksonMappingProvider())
+            .options(Option.SUPPRESS_EXCEPTIONS)
+            .build();
+    private static final JsonPath PATH_EMPTY_KEYS = JsonPath.compile("$..keys[?(@.type == '' || @.value == '' || @.idType == '')]");
+    private static final JsonPath PATH_KEY_INDEX = JsonPath.compile("$..keys[*].index");
+    private static final JsonPath PATH_KEY_LOCAL = JsonPath.compile("$..keys[*].local");
+    private static final JsonPath PATH_VIEWS = JsonPath.compile("$.assetAdministrationShells[*].views");
+    private static final JsonPath PATH_ID_TYPE = JsonPath.compile("$..idType");
+    private static final JsonPath PATH_CATEGORY = JsonPath.compile("$..category");
+    private static final JsonPath PATH_ASSETS = JsonPath.compile("$.assets");
+    private static final JsonPath PATH_SHELLS_WITH_ASSET = JsonPath.compile("$.assetAdministrationShells[?(@.asset)]");
+    private static final JsonPath PATH_VALUE_TYPE = JsonPath.compile("$..valueType[?(@.dataObjectType)]");
+    private static final JsonPath PATH_MULTI_LANGUAGE_PROPERTY_VALUE = JsonPath.compile("$..value[?(@.langString)]");
+    private static final JsonPath PATH_OPERATION_VARIABLES = JsonPath.compile("$..value[?(@.submodelElement)]");
+    private static final JsonPath PATH_EMBEDDED_DATA_SPECIFICATION_DATA_TYPE = JsonPath.compile("$..embeddedDataSpecifications[*]..dataType");
+    private static final JsonPath PATH_CONCEPT_DESCRIPTION_EMBEDDED_DATA_SPECIFICATIONS = JsonPath.compile("$.conceptDescriptions[*].embeddedDataSpecifications");
+    private final ConversionEngine engine;
+    private final List<ConversionRule> rules;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    private PackageExplorerConverter(ConversionEngine engine, List<ConversionRule> rules, int parallelism) {
+        this.engine = engine;
+        this.rules = List.copyOf(rules);
+        this.parallelism = parallelism;
+        this.pool = parallelism > 1 && engine == ConversionEngine.SINGLE_PASS
+                ? new ForkJoinPool(parallelism)
+                : null;
+    }
+
 
-    private PackageExplorerConverter(InputStream input) {
-        document = JsonPath
-                .using(new Configuration.ConfigurationBuilder()
-                        .jsonProvider(new JacksonJsonNodeJsonProvider())
-                        .mappingProvider(new JacksonMappingProvider())
-                        .options(Option.SUPPRESS_EXCEPTIONS)
-                        .build())
-                .parse(input, StandardCharsets.UTF_8.name());
+    /**
+     * Creates a new builder.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
 
-    public static InputStream toFaaast(InputStream input) {
-        return new PackageExplorerConverter(input).convert();
+    /**
+     * Gets the shared instance for an engine that applies all rules registered as a service.
+     *
+     * @param engine the engine
+     * @return the shared instance
+     */
+    public static PackageExplorerConverter getDefault(ConversionEngine engine) {
+        return Defaults.INSTANCES.get(engine);
     }
 
 
-    private ByteArrayInputStream convert() {
-        removeEmptyKeys();
-        removeKeyIndex();
-        removeKeyLocal();
-        removeViews();
-        capitalizeEnumValues();
-        transformAssets();
-        flattenValueType();
-        flattenOperationVariables();
-        flattenMultiLanguagePropertyValue();
-        fixEmbeddedDataSpecificationDataType();
-        addMissingEmbeddedDataSpecificationType();
-        if (LOGGER.isDebugEnabled()) {
-            try {
-                LOGGER.debug(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(document.json()));
-            }
-            catch (JsonProcessingException e) {
-                LOGGER.warn("Could not log converter result as serialization failed", e);
+    /**
+     * Gets the engine used by this converter.
+     *
+     * @return the engine
+     */
+    public ConversionEngine getEngine() {
+        return engine;
+    }
+
+
+    /**
+     * Gets the number of threads used to convert the shells, submodels and concept descriptions of a document.
+     *
+     * @return the number of threads
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+
+    /**
+     * Gets the custom rules applied by this converter after the built-in rules.
+     *
+     * @return an unmodifiable list of the custom rules
+     */
+    public List<ConversionRule> getRules() {
+        return rules;
+    }
+
+
+    /**
+     * Shuts down the thread pool used to convert elements in parallel, if any. Running conversions are completed, but the
+     * converter must not be used for new conversions afterwards. Has no effect on converters that convert sequentially.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON document.
+     *
+     * @param input the input
+     * @param output the output stream to write the result to; not closed by this method
+     * @throws IOException if reading the input or writing the output fails
+     */
+    public void convert(InputStream input, OutputStream output) throws IOException {
+        write(convert(readTree(input)), output);
+    }
+
+
+    /**
+     * Converts an already parsed Package Explorer JSON document.
+     *
+     * @param input the input; modified in place
+     * @return the converted document
+     */
+    public JsonNode convert(JsonNode input) {
+        return convert(input, ConversionMetrics.NONE);
+    }
+
+
+    /**
+     * Converts an already parsed Package Explorer JSON document and reports how often each conversion rule has been
+     * applied. The duration of each custom rule, as well as of each built-in rule when using
+     * {@link ConversionEngine#JSON_PATH}, is reported as stage {@code convert.<rule>}.
+     *
+     * @param input the input; modified in place
+     * @param metrics the metrics to report to
+     * @return the converted document
+     */
+    public JsonNode convert(JsonNode input, ConversionMetrics metrics) {
+        return convert(input, metrics, null);
+    }
+
+
+    /**
+     * Converts an already parsed Package Explorer JSON document, reports how often each conversion rule has been
+     * applied and records the changes made by the built-in rules, see {@link ChangeJournal}. Changes are only recorded
+     * when using {@link ConversionEngine#SINGLE_PASS}.
+     *
+     * @param input the input; modified in place
+     * @param metrics the metrics to report to
+     * @param journal the journal to record changes in; may be null
+     * @return the converted document
+     */
+    public JsonNode convert(JsonNode input, ConversionMetrics metrics, ChangeJournal.Recorder journal) {
+        JsonNode result;
+        if (engine == ConversionEngine.JSON_PATH) {
+            DocumentContext document = parse(input);
+            apply(document, List.of(Step.values()), metrics);
+            apply(document, rules, metrics);
+            result = document.json();
+        }
+        else {
+            TreeWalkingTransformer transformer = new TreeWalkingTransformer(Map.of(), journal, pool);
+            result = transformer.transform(input);
+            transformer.reportTo(metrics);
+            if (!rules.isEmpty()) {
+                DocumentContext document = parse(result);
+                apply(document, rules, metrics);
+                result = document.json();
             }
         }
-        return new ByteArrayInputStream(document.jsonString().getBytes());
+        return result;
+    }
+
+
+    public static InputStream toFaaast(InputStream input) throws IOException {
+        return toFaaast(input, ConversionEngine.SINGLE_PASS);
+    }
+
+
+    public static InputStream toFaaast(InputStream input, ConversionEngine engine) throws IOException {
+        return new ByteArrayInputStream(MAPPER.writeValueAsBytes(toFaaastTree(input, engine)));
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON document and writes the result to the given output stream without creating an
+     * intermediate textual representation.
+     *
+     * @param input the input
+     * @param output the output stream to write the result to; not closed by this method
+     * @param engine the engine to use
+     * @throws IOException if reading the input or writing the output fails
+     */
+    public static void toFaaast(InputStream input, OutputStream output, ConversionEngine engine) throws IOException {
+        write(toFaaastTree(input, engine), output);
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON document to a Jackson tree.
+     *
+     * @param input the input
+     * @param engine the engine to use
+     * @return the converted document
+     * @throws IOException if reading the input fails
+     */
+    public static JsonNode toFaaastTree(InputStream input, ConversionEngine engine) throws IOException {
+        return toFaaastTree(readTree(input), engine);
+    }
+
+
+    /**
+     * Parses a JSON document into a tree that shares the nodes of equal string values, see
+     * {@link CanonicalNodeFactory}.
+     *
+     * @param input the input
+     * @return the parsed document
+     * @throws IOException if reading the input fails
+     */
+    static JsonNode readTree(InputStream input) throws IOException {
+        return MAPPER.reader().with(new CanonicalNodeFactory()).readTree(input);
+    }
+
+
+    /**
+     * Converts an already parsed Package Explorer JSON document.
+     *
+     * @param input the input; modified in place
+     * @param engine the engine to use
+     * @return the converted document
+     */
+    public static JsonNode toFaaastTree(JsonNode input, ConversionEngine engine) {
+        return toFaaastTree(input, engine, ConversionMetrics.NONE);
+    }
+
+
+    /**
+     * Converts an already parsed Package Explorer JSON document and reports how often each conversion rule has been
+     * applied, see {@link #convert(JsonNode, ConversionMetrics)}.
+     *
+     * @param input the input; modified in place
+     * @param engine the engine to use
+     * @param metrics the metrics to report to
+     * @return the converted document
+     */
+    public static JsonNode toFaaastTree(JsonNode input, ConversionEngine engine, ConversionMetrics metrics) {
+        return getDefault(engine).convert(input, metrics);
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON document and binds the result to the FA³ST model without creating an
+     * intermediate textual representation.
+     *
+     * @param input the input
+     * @param engine the engine to use
+     * @return the converted environment
+     * @throws IOException if reading the input fails
+     * @throws DeserializationException if the conversion result is not a valid FA³ST model
+     */
+    public static AssetAdministrationShellEnvironment toFaaastEnvironment(InputStream input, ConversionEngine engine) throws IOException, DeserializationException {
+        return new JsonTreeDeserializer().read(toFaaastTree(input, engine));
+    }
+
+
+    /**
+     * Writes a Jackson tree to an output stream.
+     *
+     * @param node the tree to write
+     * @param output the output stream; not closed by this method
+     * @throws IOException if writing fails
+     */
+    public static void write(JsonNode node, OutputStream output) throws IOException {
+        MAPPER.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(output, node);
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON file by streaming, i.e. without loading the whole document into memory. The
+     * input is read twice. Custom rules are not supported in streaming mode and therefore not applied.
+     *
+     * @param input the input file; either a JSON file or an AASX package containing an AAS in JSON format
+     * @param output the output stream to write the result to; not closed by this method
+     * @throws IOException if reading the input or writing the output fails
+     */
+    public static void toFaaast(File input, OutputStream output) throws IOException {
+        toFaaast(input, output, ConversionMetrics.NONE);
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON file by streaming and reports how often each conversion rule has been applied.
+     *
+     * @param input the input file; either a JSON file or an AASX package containing an AAS in JSON format
+     * @param output the output stream to write the result to; not closed by this method
+     * @param metrics the metrics to report to
+     * @throws IOException if reading the input or writing the output fails
+     */
+    public static void toFaaast(File input, OutputStream output, ConversionMetrics metrics) throws IOException {
+        try (ConversionInput conversionInput = ConversionInput.of(input)) {
+            toFaaast(conversionInput, output, metrics);
+        }
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON document by streaming and reports how often each conversion rule has been
+     * applied.
+     *
+     * @param input the input; read twice
+     * @param output the output stream to write the result to; not closed by this method
+     * @param metrics the metrics to report to
+     * @throws IOException if reading the input or writing the output fails
+     */
+    static void toFaaast(ConversionInput input, OutputStream output, ConversionMetrics metrics) throws IOException {
+        toFaaast(input, output, metrics, null);
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON document by streaming, reports how often each conversion rule has been applied
+     * and records all changes.
+     *
+     * @param input the input; read twice
+     * @param output the output stream to write the result to; not closed by this method
+     * @param metrics the metrics to report to
+     * @param journal the journal to record changes in; may be null
+     * @throws IOException if reading the input or writing the output fails
+     */
+    static void toFaaast(ConversionInput input, OutputStream output, ConversionMetrics metrics, ChangeJournal.Recorder journal) throws IOException {
+        StreamingTransformer.transform(MAPPER.getFactory(), input, output, metrics, journal);
     }
 
 
-    private void delete(String path, Function<List<JsonNode>, String> logMessageProvider, boolean logElements) {
+    /**
+     * Determines which conversion rules would modify a Package Explorer JSON document without converting it. The input
+     * is read once and only small local subtrees are materialized, see {@link RuleScanner}.
+     *
+     * @param input the input; not closed by this method
+     * @param metrics the metrics to report how often each rule would be applied and which warnings would occur to
+     * @throws IOException if reading the input fails
+     */
+    public static void check(InputStream input, ConversionMetrics metrics) throws IOException {
+        RuleScanner.scan(MAPPER.getFactory(), input, metrics);
+    }
+
+
+    /**
+     * Applies a single step of the JsonPath-based conversion. Used to benchmark individual steps.
+     *
+     * @param input the input document; is modified in place
+     * @param step the step to apply
+     * @return the resulting document
+     */
+    static JsonNode applyStep(JsonNode input, Step step) {
+        DocumentContext document = parse(input);
+        step.apply(document, ConversionMetrics.NONE);
+        return document.json();
+    }
+
+
+    private static DocumentContext parse(JsonNode input) {
+        return JsonPath.using(JSON_PATH_CONFIGURATION).parse(input);
+    }
+
+
+    private static void apply(DocumentContext document, List<? extends ConversionRule> rules, ConversionMetrics metrics) {
+        for (ConversionRule rule: rules) {
+            long start = System.nanoTime();
+            rule.apply(document, metrics);
+            metrics.stage(ConversionMetrics.STAGE_CONVERT + "." + rule.getName(), System.nanoTime() - start);
+        }
+    }
+
+
+    private static MapFunction counting(RewriteCounts counts, Step step, MapFunction function) {
+        return (value, config) -> {
+            Object result = function.map(value, config);
+            counts.count(step, !Objects.equals(value, result));
+            return result;
+        };
+    }
+
+
+    private static void delete(DocumentContext document, RewriteCounts counts, JsonPath path, Step step, Function<List<JsonNode>, String> logMessageProvider) {
         List<JsonNode> elements = document.read(path, TYPE_JSON_NODE_LIST);
+        counts.count(step, elements.size(), elements.size());
         if (!elements.isEmpty()) {
             LOGGER.debug(logMessageProvider.apply(elements));
-            if (logElements) {
-                elements.forEach(x -> LOGGER.debug("     {}", x));
-            }
         }
         try {
             document.delete(path);
@@ -108,40 +462,50 @@ public class PackageExplorerConverter {
     }
 
 
-    private void removeEmptyKeys() {
-        delete("$..keys[?(@.type == '' || @.value == '' || @.idType == '')]",
+    private static void removeEmptyKeys(DocumentContext document, RewriteCounts counts) {
+        delete(document, counts, PATH_EMPTY_KEYS,
+                Step.REMOVE_EMPTY_KEYS,
                 x -> String.format("Found %d keys with empty type, value, and/or idType. These keys will be removed which may render enclosing element (e.g. a reference) invalid.",
-                        x.size()),
-                true);
+                        x.size()));
     }
 
 
-    private void removeKeyIndex() {
-        delete("$..keys[*].index", x -> String.format("Removed key.index (because package explorer-specific)"), false);
+    private static void removeKeyIndex(DocumentContext document, RewriteCounts counts) {
+        delete(document, counts, PATH_KEY_INDEX, Step.REMOVE_KEY_INDEX, x -> String.format("Removed key.index (because package explorer-specific)"));
     }
 
 
-    private void removeKeyLocal() {
-        delete("$..keys[*].local", x -> String.format("Removed key.local (because removed in AAS v3.0)"), false);
+    private static void removeKeyLocal(DocumentContext document, RewriteCounts counts) {
+        delete(document, counts, PATH_KEY_LOCAL, Step.REMOVE_KEY_LOCAL, x -> String.format("Removed key.local (because removed in AAS v3.0)"));
     }
 
 
-    private void removeViews() {
-        delete("$.assetAdministrationShells[*].views", x -> String.format("Removed views (because removed in AAS v3.0)"), false);
+    private static void removeViews(DocumentContext document, RewriteCounts counts) {
+        delete(document, counts, PATH_VIEWS, Step.REMOVE_VIEWS, x -> String.format("Removed views (because removed in AAS v3.0)"));
     }
 
 
-    private void capitalizeEnumValues() {
+    private static void capitalizeEnumValues(DocumentContext document, RewriteCounts counts) {
         LOGGER.debug("Adjusting values for 'idType' and 'category' (FA³ST-specific)");
-        document.map("$..idType", (x, config) -> transformIdTye(x.toString()));
-        document.map("$..category", (x, config) -> AasUtils.serializeEnumName(x.toString()));
+        document.map(PATH_ID_TYPE, counting(counts, Step.CAPITALIZE_ENUM_VALUES, (x, config) -> transformIdType(x.toString())));
+        document.map(PATH_CATEGORY, counting(counts, Step.CAPITALIZE_ENUM_VALUES, (x, config) -> transformCategory(x.toString())));
     }
 
 
-    private String transformIdTye(String idType) {
-        Optional<KeyType> keyType = Stream.of(KeyType.values())
-                .filter(x -> normalize(x.name()).equals(normalize(idType)))
-                .findFirst();
+    static boolean isEmptyKey(JsonNode key) {
+        return isEmptyText(key.get("type"))
+                || isEmptyText(key.get("value"))
+                || isEmptyText(key.get("idType"));
+    }
+
+
+    private static boolean isEmptyText(JsonNode node) {
+        return node != null && node.isTextual() && node.textValue().isEmpty();
+    }
+
+
+    static String transformIdType(String idType) {
+        Optional<KeyType> keyType = parseIdType(idType);
         if (keyType.isPresent()) {
             return AasUtils.serializeEnumName(keyType.get().name());
         }
@@ -150,116 +514,326 @@ public class PackageExplorerConverter {
     }
 
 
+    /**
+     * Checks whether an idType value can be mapped to a key type or would be replaced with the default.
+     *
+     * @param idType the idType value
+     * @return true if the value is a known key type, otherwise false
+     */
+    static boolean isValidIdType(String idType) {
+        return parseIdType(idType).isPresent();
+    }
+
+
+    private static Optional<KeyType> parseIdType(String idType) {
+        return Stream.of(KeyType.values())
+                .filter(x -> normalize(x.name()).equals(normalize(idType)))
+                .findFirst();
+    }
+
+
+    static String transformCategory(String category) {
+        return AasUtils.serializeEnumName(category);
+    }
+
+
     private static String normalize(String input) {
         return input.toLowerCase().replace("_", "");
     }
 
 
-    private void fixEmbeddedDataSpecificationDataType() {
+    private static void fixEmbeddedDataSpecificationDataType(DocumentContext document, RewriteCounts counts) {
         LOGGER.debug("Adjusting values for 'dataType' inside embeddedDataSpecifications (FA³ST-specific)");
-        document.map("$..embeddedDataSpecifications[*]..dataType", (x, config) -> {
-            String datatype = x.toString();
-            if (datatype.startsWith("\"") && datatype.endsWith("\"")) {
-                datatype = datatype.substring(1, datatype.length() - 1);
-            }
-            if (datatype.isBlank()) {
-                LOGGER.warn("Found embeddedDataSpecification with missing datatype property - setting to 'String' (default)");
-                return "String";
-            }
-            return AasUtils.serializeEnumName(datatype);
+        document.map(PATH_EMBEDDED_DATA_SPECIFICATION_DATA_TYPE,
+                counting(counts, Step.FIX_EMBEDDED_DATA_SPECIFICATION_DATA_TYPE, (x, config) -> fixDataType(x.toString())));
+    }
+
+
+    static String fixDataType(String value) {
+        if (isMissingDataType(value)) {
+            LOGGER.warn("Found embeddedDataSpecification with missing datatype property - setting to 'String' (default)");
+            return "String";
+        }
+        return AasUtils.serializeEnumName(unquote(value));
+    }
+
+
+    /**
+     * Checks whether the datatype of an embeddedDataSpecification is missing and would be set to the default.
+     *
+     * @param value the datatype value
+     * @return true if the value is blank, otherwise false
+     */
+    static boolean isMissingDataType(String value) {
+        return unquote(value).isBlank();
+    }
+
+
+    private static String unquote(String value) {
+        return value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1)
+                : value;
+    }
+
+
+    private static void addMissingEmbeddedDataSpecificationType(DocumentContext document, RewriteCounts counts) {
+        document.map(PATH_CONCEPT_DESCRIPTION_EMBEDDED_DATA_SPECIFICATIONS, (node, config) -> {
+            ArrayNode embeddedDataSpecifications = (ArrayNode) node;
+            counts.count(Step.ADD_MISSING_EMBEDDED_DATA_SPECIFICATION_TYPE,
+                    embeddedDataSpecifications.size(),
+                    addMissingEmbeddedDataSpecificationType(embeddedDataSpecifications));
+            return node;
         });
     }
 
 
-    private void addMissingEmbeddedDataSpecificationType() {
-        document.map("$.conceptDescriptions[*].embeddedDataSpecifications", (node, config) -> {
-            StreamSupport.stream(((ArrayNode) node).spliterator(), false).forEach(x -> {
-                try {
-                    JsonNode dataSpecificationContent = x.get("dataSpecificationContent");
-                    if (dataSpecificationContent == null || dataSpecificationContent.isEmpty()) {
-                        return;
-                    }
-                    ObjectNode dataSpecification = (ObjectNode) dataSpecificationContent.get("dataSpecification");
-                    if (dataSpecification == null) {
-                        dataSpecification = ((ObjectNode) x).putObject("dataSpecification");
-                    }
-                    ArrayNode keys = (ArrayNode) dataSpecification.get("keys");
-                    if (keys == null) {
-                        keys = dataSpecification.putArray("keys");
-                    }
-                    if (keys.isEmpty()) {
-                        LOGGER.debug("Adding missing type information for embeddedDataSpecification in conceptDescription");
-                        keys.add(JsonNodeFactory.instance.objectNode()
-                                .put("idType", "Iri")
-                                .put("type", "GlobalReference")
-                                .put("value", "http://admin-shell.io/DataSpecificationTemplates/DataSpecificationIEC61360/2/0"));
-                    }
+    static int addMissingEmbeddedDataSpecificationType(ArrayNode embeddedDataSpecifications) {
+        return addMissingEmbeddedDataSpecificationType(embeddedDataSpecifications, (pointer, key) -> {});
+    }
+
+
+    /**
+     * Adds the missing reference to the data specification template to all embeddedDataSpecifications of a concept
+     * description.
+     *
+     * @param embeddedDataSpecifications the embeddedDataSpecifications; modified in place
+     * @param listener called for each added key with the JSON pointer of the key relative to the array and the key
+     * @return the number of added keys
+     */
+    static int addMissingEmbeddedDataSpecificationType(ArrayNode embeddedDataSpecifications, BiConsumer<String, JsonNode> listener) {
+        int added = 0;
+        for (int i = 0; i < embeddedDataSpecifications.size(); i++) {
+            JsonNode x = embeddedDataSpecifications.get(i);
+            try {
+                JsonNode dataSpecificationContent = x.get("dataSpecificationContent");
+                if (dataSpecificationContent == null || dataSpecificationContent.isEmpty()) {
+                    continue;
                 }
-                catch (Exception e) {
-                    LOGGER.error("error while adding missing embeddedDataSpecification type", e);
+                ObjectNode dataSpecification = (ObjectNode) dataSpecificationContent.get("dataSpecification");
+                String pointer = "/" + i + "/dataSpecificationContent/dataSpecification/keys/";
+                if (dataSpecification == null) {
+                    dataSpecification = ((ObjectNode) x).putObject("dataSpecification");
+                    pointer = "/" + i + "/dataSpecification/keys/";
                 }
-            });
-            return node;
-        });
+                ArrayNode keys = (ArrayNode) dataSpecification.get("keys");
+                if (keys == null) {
+                    keys = dataSpecification.putArray("keys");
+                }
+                if (keys.isEmpty()) {
+                    ObjectNode key = keys.addObject()
+                            .put("idType", "Iri")
+                            .put("type", "GlobalReference")
+                            .put("value", "http://admin-shell.io/DataSpecificationTemplates/DataSpecificationIEC61360/2/0");
+                    listener.accept(pointer + 0, key);
+                    added++;
+                }
+            }
+            catch (Exception e) {
+                LOGGER.error("error while adding missing embeddedDataSpecification type", e);
+            }
+        }
+        return added;
     }
 
 
-    private void transformAssets() {
+    private static void transformAssets(DocumentContext document, RewriteCounts counts) {
         LOGGER.debug(
                 "Updating assets: removing top-level 'assets' array and converter 'AssetAdministrationShell.asset' to 'AssetAdministrationShell.assetInformation' (introduced in v3.0)");
-        List<ObjectNode> assets = document.read("$.assets", TYPE_OBJECT_NODE_LIST);
+        List<ObjectNode> assets = document.read(PATH_ASSETS, TYPE_OBJECT_NODE_LIST);
         Map<String, String> assetKinds;
         if (assets == null) {
             assetKinds = Map.of();
         }
         else {
-            assetKinds = assets.stream()
-                    .collect(Collectors.toMap(
-                            x -> x.at("/identification/id").asText(),
-                            x -> x.get("kind").asText()));
-            document.delete("$.assets");
+            assetKinds = indexAssetKinds(assets.stream());
+            document.delete(PATH_ASSETS);
         }
-        document.map("$.assetAdministrationShells[?(@.asset)]", (x, config) -> {
+        document.map(PATH_SHELLS_WITH_ASSET, (x, config) -> {
             ObjectNode node = (ObjectNode) x;
-            ObjectNode nodeAssetInformation = node.putObject("assetInformation");
-            String id = node.at("/asset/keys/0/value").asText();
-            nodeAssetInformation.put("assetKind", assetKinds.containsKey(id) ? assetKinds.get(id) : "Instance");
-            nodeAssetInformation
-                    .putObject("globalAssetId")
-                    .putArray("keys")
-                    .addObject()
-                    .put("value", id)
-                    .put("type", "Asset")
-                    .set("idType", node.at("/asset/keys/0/idType"));
-            node.remove("asset");
+            toAssetInformation(node, assetKinds);
+            counts.count(Step.TRANSFORM_ASSETS, true);
             return node;
         });
     }
 
 
-    private void flattenValueType() {
+    static Map<String, String> indexAssetKinds(Stream<? extends JsonNode> assets) {
+        return assets.collect(Collectors.toMap(
+                x -> x.at("/identification/id").asText(),
+                x -> x.get("kind").asText()));
+    }
+
+
+    static void toAssetInformation(ObjectNode node, Map<String, String> assetKinds) {
+        ObjectNode nodeAssetInformation = node.putObject("assetInformation");
+        String id = node.at("/asset/keys/0/value").asText();
+        nodeAssetInformation.put("assetKind", assetKinds.containsKey(id) ? assetKinds.get(id) : "Instance");
+        nodeAssetInformation
+                .putObject("globalAssetId")
+                .putArray("keys")
+                .addObject()
+                .put("value", id)
+                .put("type", "Asset")
+                .set("idType", node.at("/asset/keys/0/idType"));
+        node.remove("asset");
+    }
+
+
+    private static void flattenValueType(DocumentContext document, RewriteCounts counts) {
         LOGGER.debug("Flattening valueType structure (because package explorer-specific)");
-        document.map("$..valueType[?(@.dataObjectType)]", (x, config) -> {
-            ObjectNode node = (ObjectNode) x;
-            return JsonNodeFactory.instance.textNode(node.at("/dataObjectType/name").asText().toLowerCase());
-        });
+        document.map(PATH_VALUE_TYPE, counting(counts, Step.FLATTEN_VALUE_TYPE, (x, config) -> flattenValueType((ObjectNode) x)));
+    }
+
+
+    static JsonNode flattenValueType(ObjectNode node) {
+        return node.textNode(node.at("/dataObjectType/name").asText().toLowerCase());
     }
 
 
-    private void flattenMultiLanguagePropertyValue() {
+    private static void flattenMultiLanguagePropertyValue(DocumentContext document, RewriteCounts counts) {
         LOGGER.debug("Flattening MultiLanguageProperty.value structure (because package explorer-specific)");
-        document.map("$..value[?(@.langString)]", (x, config) -> {
-            ObjectNode node = (ObjectNode) x;
-            return node.get("langString");
-        });
+        document.map(PATH_MULTI_LANGUAGE_PROPERTY_VALUE,
+                counting(counts, Step.FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE, (x, config) -> flattenMultiLanguagePropertyValue((ObjectNode) x)));
+    }
+
+
+    static JsonNode flattenMultiLanguagePropertyValue(ObjectNode node) {
+        return node.get("langString");
     }
 
 
-    private void flattenOperationVariables() {
+    private static void flattenOperationVariables(DocumentContext document, RewriteCounts counts) {
         LOGGER.debug("Flattening operation variable structure (because package explorer-specific)");
-        document.map("$..value[?(@.submodelElement)]", (x, config) -> {
-            ObjectNode node = (ObjectNode) x;
-            return node.elements().next();
-        });
+        document.map(PATH_OPERATION_VARIABLES, counting(counts, Step.FLATTEN_OPERATION_VARIABLES, (x, config) -> flattenOperationVariable((ObjectNode) x)));
+    }
+
+
+    static JsonNode flattenOperationVariable(ObjectNode node) {
+        return node.elements().next();
+    }
+
+    /**
+     * Builder for {@link PackageExplorerConverter}.
+     */
+    public static class Builder {
+
+        private ConversionEngine engine = ConversionEngine.SINGLE_PASS;
+        private final List<ConversionRule> rules = new ArrayList<>();
+        private int parallelism = 1;
+
+        private Builder() {}
+
+
+        /**
+         * Sets the engine used to apply the built-in rules. Defaults to {@link ConversionEngine#SINGLE_PASS}.
+         *
+         * @param engine the engine
+         * @return this builder
+         */
+        public Builder engine(ConversionEngine engine) {
+            this.engine = Objects.requireNonNull(engine, "engine must be non-null");
+            return this;
+        }
+
+
+        /**
+         * Adds a custom rule that is applied after the built-in rules and all previously added custom rules.
+         *
+         * @param rule the rule
+         * @return this builder
+         */
+        public Builder rule(ConversionRule rule) {
+            rules.add(Objects.requireNonNull(rule, "rule must be non-null"));
+            return this;
+        }
+
+
+        /**
+         * Sets the number of threads used to convert the elements of the top-level 'assetAdministrationShells',
+         * 'submodels' and 'conceptDescriptions' arrays of a document in parallel. All conversions of the converter share
+         * one {@link ForkJoinPool} that is shut down by {@link PackageExplorerConverter#close()}. Only supported by
+         * {@link ConversionEngine#SINGLE_PASS} and not used when recording changes. Defaults to 1, i.e. sequential
+         * conversion.
+         *
+         * @param parallelism the number of threads
+         * @return this builder
+         * @throws IllegalArgumentException if parallelism is less than 1
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+
+        /**
+         * Adds all rules registered as a service via {@link ServiceLoader}.
+         *
+         * @return this builder
+         */
+        public Builder registeredRules() {
+            ServiceLoader.load(ConversionRule.class).forEach(rules::add);
+            return this;
+        }
+
+
+        /**
+         * Creates the converter.
+         *
+         * @return the converter
+         */
+        public PackageExplorerConverter build() {
+            return new PackageExplorerConverter(engine, rules, parallelism);
+        }
+    }
+
+    private static class Defaults {
+
+        private static final Map<ConversionEngine, PackageExplorerConverter> INSTANCES = new EnumMap<>(ConversionEngine.class);
+
+        static {
+            for (ConversionEngine engine: ConversionEngine.values()) {
+                INSTANCES.put(engine, builder().engine(engine).registeredRules().build());
+            }
+        }
+    }
+
+    /**
+     * Built-in rules of the JsonPath-based conversion in the order they are applied.
+     */
+    enum Step implements ConversionRule {
+        REMOVE_EMPTY_KEYS(PackageExplorerConverter::removeEmptyKeys),
+        REMOVE_KEY_INDEX(PackageExplorerConverter::removeKeyIndex),
+        REMOVE_KEY_LOCAL(PackageExplorerConverter::removeKeyLocal),
+        REMOVE_VIEWS(PackageExplorerConverter::removeViews),
+        CAPITALIZE_ENUM_VALUES(PackageExplorerConverter::capitalizeEnumValues),
+        TRANSFORM_ASSETS(PackageExplorerConverter::transformAssets),
+        FLATTEN_VALUE_TYPE(PackageExplorerConverter::flattenValueType),
+        FLATTEN_OPERATION_VARIABLES(PackageExplorerConverter::flattenOperationVariables),
+        FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE(PackageExplorerConverter::flattenMultiLanguagePropertyValue),
+        FIX_EMBEDDED_DATA_SPECIFICATION_DATA_TYPE(PackageExplorerConverter::fixEmbeddedDataSpecificationDataType),
+        ADD_MISSING_EMBEDDED_DATA_SPECIFICATION_TYPE(PackageExplorerConverter::addMissingEmbeddedDataSpecificationType);
+
+        private final BiConsumer<DocumentContext, RewriteCounts> action;
+
+        Step(BiConsumer<DocumentContext, RewriteCounts> action) {
+            this.action = action;
+        }
+
+
+        @Override
+        public String getName() {
+            return name();
+        }
+
+
+        @Override
+        public void apply(DocumentContext document, ConversionMetrics metrics) {
+            RewriteCounts counts = new RewriteCounts();
+            action.accept(document, counts);
+            counts.reportTo(metrics, this);
+        }
     }
 }
@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Checks that the references of one or more environments in FA³ST JSON format can be resolved, e.g. after empty keys
+ * have been removed during conversion or after merging multiple files.
+ *
+ * <p>Each added document is scanned once. Identifiables are indexed by their identifier together with a content
+ * fingerprint and the idShort paths of all contained elements, and every reference whose first key refers to a shell,
+ * submodel or concept description is collected with its JSON pointer. {@link #check()} then resolves all references
+ * against the index of all documents added so far, so checking is linear in the total size of the documents. As when
+ * merging, identifiables with the same identifier and identical content in multiple documents count as one.
+ *
+ * <p>A reference is reported as unresolved if no identifiable with the identifier of its first key exists, if the
+ * identifiable has a different type than the key, or if one of the following keys does not match an element of the
+ * identifiable. It is reported as ambiguous if there are identifiables with the same identifier but different content,
+ * or multiple elements with the same idShort path. Keys following a 'GlobalReference' or 'FragmentReference' key are
+ * not resolved. Instances are thread-safe.
+ */
+public class ReferenceChecker {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter FINGERPRINT_WRITER = MAPPER.writer().with(JsonNodeFeature.WRITE_PROPERTIES_SORTED);
+    private static final Map<String, String> IDENTIFIABLE_TYPES = Map.of(
+            TreeWalkingTransformer.ASSET_ADMINISTRATION_SHELLS, "AssetAdministrationShell",
+            TreeWalkingTransformer.SUBMODELS, "Submodel",
+            TreeWalkingTransformer.CONCEPT_DESCRIPTIONS, "ConceptDescription");
+    private static final Set<String> EXTERNAL_KEY_TYPES = Set.of("GlobalReference", "FragmentReference");
+    private static final String ID_POINTER = "/identification/id";
+    private static final String ID_SHORT = "idShort";
+    private static final String MODEL_TYPE = "modelType";
+    private static final String TYPE = "type";
+    private final Map<String, Identifiable> identifiables = new HashMap<>();
+    private final Map<String, List<Reference>> references = new TreeMap<>();
+
+    /**
+     * Adds a document.
+     *
+     * @param file name of the file the document has been read from; used for reporting. Adding a document with the
+     *            same name again replaces its references but not its identifiables
+     * @param document the document
+     */
+    public void add(String file, JsonNode document) {
+        Scan scan = new Scan();
+        Iterator<Map.Entry<String, JsonNode>> fields = document.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String type = IDENTIFIABLE_TYPES.get(field.getKey());
+            if (type != null && field.getValue().isArray()) {
+                for (int i = 0; i < field.getValue().size(); i++) {
+                    scan.identifiable(field.getValue().get(i), type, "/" + field.getKey() + "/" + i);
+                }
+            }
+        }
+        merge(file, scan);
+    }
+
+
+    /**
+     * Adds a document by reading one identifiable at a time, i.e. without loading the whole document into memory.
+     *
+     * @param file name of the file used for reporting, see {@link #add(String, JsonNode)}
+     * @param input the file to read the document from
+     * @throws IOException if reading the input fails or the input is not a JSON object
+     */
+    public void add(String file, File input) throws IOException {
+        try (InputStream stream = new FileInputStream(input)) {
+            add(file, stream);
+        }
+    }
+
+
+    /**
+     * Adds a document by reading one identifiable at a time, i.e. without loading the whole document into memory.
+     *
+     * @param file name of the file used for reporting, see {@link #add(String, JsonNode)}
+     * @param input the stream to read the document from
+     * @throws IOException if reading the input fails or the input is not a JSON object
+     */
+    public void add(String file, InputStream input) throws IOException {
+        Scan scan = new Scan();
+        try (JsonParser parser = MAPPER.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException(String.format("input is not a JSON object (file: %s)", file));
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                String type = IDENTIFIABLE_TYPES.get(field);
+                if (parser.nextToken() != JsonToken.START_ARRAY || type == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                int index = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    scan.identifiable(parser.readValueAsTree(), type, "/" + field + "/" + index++);
+                }
+            }
+        }
+        merge(file, scan);
+    }
+
+
+    private synchronized void merge(String file, Scan scan) {
+        for (Identifiable identifiable: scan.identifiables) {
+            Identifiable existing = identifiables.putIfAbsent(identifiable.id, identifiable);
+            if (existing != null && (!existing.type.equals(identifiable.type) || !existing.fingerprint.equals(identifiable.fingerprint))) {
+                existing.ambiguous = true;
+            }
+        }
+        references.put(file, scan.references);
+    }
+
+
+    /**
+     * Resolves all references of the documents added so far.
+     *
+     * @return the references that could not be resolved or are ambiguous, ordered by file name and position in the
+     *         document
+     */
+    public synchronized List<Issue> check() {
+        List<Issue> result = new ArrayList<>();
+        references.forEach((file, referencesOfFile) -> {
+            for (Reference reference: referencesOfFile) {
+                Issue issue = resolve(file, reference);
+                if (issue != null) {
+                    result.add(issue);
+                }
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Gets the number of references collected so far that refer to a shell, submodel or concept description.
+     *
+     * @return the number of references
+     */
+    public synchronized long getReferenceCount() {
+        return references.values().stream().mapToLong(List::size).sum();
+    }
+
+
+    private Issue resolve(String file, Reference reference) {
+        Identifiable identifiable = identifiables.get(reference.id);
+        if (identifiable == null) {
+            return new Issue(file, reference, IssueType.UNRESOLVED, String.format("no identifiable with identifier '%s'", reference.id));
+        }
+        if (identifiable.ambiguous) {
+            return new Issue(file, reference, IssueType.AMBIGUOUS, String.format("multiple identifiables with identifier '%s' and different content", reference.id));
+        }
+        if (!identifiable.type.equals(reference.type)) {
+            return new Issue(file, reference, IssueType.UNRESOLVED, String.format("identifier '%s' refers to a %s instead of a %s",
+                    reference.id, identifiable.type, reference.type));
+        }
+        if (reference.path == null) {
+            return null;
+        }
+        if (identifiable.duplicatePaths.contains(reference.path)) {
+            return new Issue(file, reference, IssueType.AMBIGUOUS, String.format("multiple elements with idShort path '%s' in %s '%s'",
+                    reference.path, identifiable.type, reference.id));
+        }
+        if (!identifiable.paths.contains(reference.path)) {
+            return new Issue(file, reference, IssueType.UNRESOLVED, String.format("no element with idShort path '%s' in %s '%s'",
+                    reference.path, identifiable.type, reference.id));
+        }
+        return null;
+    }
+
+    /**
+     * Type of a reference issue.
+     */
+    public enum IssueType {
+        UNRESOLVED,
+        AMBIGUOUS
+    }
+
+    /**
+     * A reference that could not be resolved or is ambiguous.
+     */
+    public static class Issue {
+
+        private final String file;
+        private final String pointer;
+        private final IssueType type;
+        private final String message;
+
+        private Issue(String file, Reference reference, IssueType type, String message) {
+            this.file = file;
+            this.pointer = reference.pointer;
+            this.type = type;
+            this.message = message;
+        }
+
+
+        public String getFile() {
+            return file;
+        }
+
+
+        /**
+         * Gets the JSON pointer of the reference, i.e. of the object containing the 'keys' array.
+         *
+         * @return the JSON pointer
+         */
+        public String getPointer() {
+            return pointer;
+        }
+
+
+        public IssueType getType() {
+            return type;
+        }
+
+
+        public String getMessage() {
+            return message;
+        }
+
+
+        @Override
+        public String toString() {
+            return String.format("%s reference (file: %s, pointer: %s): %s", type == IssueType.AMBIGUOUS ? "ambiguous" : "unresolved", file, pointer, message);
+        }
+    }
+
+    /**
+     * Collects the identifiables and references of a single document.
+     */
+    private static class Scan {
+
+        private final List<Identifiable> identifiables = new ArrayList<>();
+        private final List<Reference> references = new ArrayList<>();
+
+        private void identifiable(JsonNode node, String type, String pointer) {
+            if (!node.isObject()) {
+                return;
+            }
+            JsonNode id = node.at(ID_POINTER);
+            if (id.isTextual()) {
+                Identifiable identifiable = new Identifiable(id.textValue(), type, fingerprint(node));
+                indexElements(identifiable, node, null);
+                identifiables.add(identifiable);
+            }
+            collectReferences(node, new StringBuilder(pointer));
+        }
+
+
+        /**
+         * Adds the idShort paths of all elements contained in a node. Elements are objects with 'idShort' and
+         * 'modelType' contained in an array, e.g. 'submodelElements', or wrapped in the 'value' of such an object, e.g.
+         * operation variables.
+         */
+        private static void indexElements(Identifiable identifiable, JsonNode node, String path) {
+            Iterator<JsonNode> fields = node.elements();
+            while (fields.hasNext()) {
+                JsonNode field = fields.next();
+                if (!field.isArray()) {
+                    continue;
+                }
+                for (JsonNode element: field) {
+                    if (!isElement(element) && isElement(element.path(TreeWalkingTransformer.VALUE))) {
+                        element = element.get(TreeWalkingTransformer.VALUE);
+                    }
+                    if (isElement(element)) {
+                        String elementPath = path == null
+                                ? element.get(ID_SHORT).textValue()
+                                : path + "/" + element.get(ID_SHORT).textValue();
+                        if (!identifiable.paths.add(elementPath)) {
+                            identifiable.duplicatePaths.add(elementPath);
+                        }
+                        indexElements(identifiable, element, elementPath);
+                    }
+                }
+            }
+        }
+
+
+        private static boolean isElement(JsonNode node) {
+            return node.isObject() && node.path(ID_SHORT).isTextual() && node.has(MODEL_TYPE);
+        }
+
+
+        private void collectReferences(JsonNode node, StringBuilder pointer) {
+            if (node.isObject()) {
+                JsonNode keys = node.get(TreeWalkingTransformer.KEYS);
+                if (keys != null && keys.isArray()) {
+                    collectReference(keys, pointer);
+                }
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    if (field.getValue().isContainerNode()) {
+                        int length = pointer.length();
+                        pointer.append('/').append(field.getKey().replace("~", "~0").replace("/", "~1"));
+                        collectReferences(field.getValue(), pointer);
+                        pointer.setLength(length);
+                    }
+                }
+            }
+            else if (node.isArray()) {
+                for (int i = 0; i < node.size(); i++) {
+                    if (node.get(i).isContainerNode()) {
+                        int length = pointer.length();
+                        pointer.append('/').append(i);
+                        collectReferences(node.get(i), pointer);
+                        pointer.setLength(length);
+                    }
+                }
+            }
+        }
+
+
+        private void collectReference(JsonNode keys, StringBuilder pointer) {
+            if (keys.size() == 0) {
+                return;
+            }
+            String type = keys.get(0).path(TYPE).asText();
+            if (!IDENTIFIABLE_TYPES.containsValue(type)) {
+                return;
+            }
+            StringBuilder path = null;
+            for (int i = 1; i < keys.size() && !EXTERNAL_KEY_TYPES.contains(keys.get(i).path(TYPE).asText()); i++) {
+                path = path == null
+                        ? new StringBuilder()
+                        : path.append('/');
+                path.append(keys.get(i).path(TreeWalkingTransformer.VALUE).asText());
+            }
+            references.add(new Reference(pointer.toString(), type, keys.get(0).path(TreeWalkingTransformer.VALUE).asText(), path != null ? path.toString() : null));
+        }
+
+
+        private static String fingerprint(JsonNode node) {
+            DigestOutputStream fingerprint = Fingerprint.newOutputStream();
+            try {
+                FINGERPRINT_WRITER.writeValue(fingerprint, node);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return Fingerprint.finish(fingerprint.getMessageDigest());
+        }
+    }
+
+    private static class Identifiable {
+
+        private final String id;
+        private final String type;
+        private final String fingerprint;
+        private final Set<String> paths = new HashSet<>();
+        private final Set<String> duplicatePaths = new HashSet<>();
+        private boolean ambiguous;
+
+        private Identifiable(String id, String type, String fingerprint) {
+            this.id = id;
+            this.type = type;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static class Reference {
+
+        private final String pointer;
+        private final String type;
+        private final String id;
+        private final String path;
+
+        private Reference(String pointer, String type, String id, String path) {
+            this.pointer = pointer;
+            this.type = type;
+            this.id = id;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer.PackageExplorerConverter.Step;
+
+
+/**
+ * Counts how often each conversion rule matched and modified a node. Rules correspond to the steps of the JsonPath-based
+ * conversion so counts are comparable across engines.
+ */
+class RewriteCounts {
+
+    private final long[] matched = new long[Step.values().length];
+    private final long[] modified = new long[Step.values().length];
+
+    /**
+     * Counts a single node matched by a rule.
+     *
+     * @param step the rule
+     * @param isModified whether the node has been modified
+     */
+    void count(Step step, boolean isModified) {
+        matched[step.ordinal()]++;
+        if (isModified) {
+            modified[step.ordinal()]++;
+        }
+    }
+
+
+    /**
+     * Counts multiple nodes matched by a rule.
+     *
+     * @param step the rule
+     * @param matchedCount number of nodes matched
+     * @param modifiedCount number of nodes modified
+     */
+    void count(Step step, long matchedCount, long modifiedCount) {
+        matched[step.ordinal()] += matchedCount;
+        modified[step.ordinal()] += modifiedCount;
+    }
+
+
+    /**
+     * Adds the counts of another instance, e.g. of a part of the document transformed separately.
+     *
+     * @param other the other instance
+     */
+    void add(RewriteCounts other) {
+        for (int i = 0; i < matched.length; i++) {
+            matched[i] += other.matched[i];
+            modified[i] += other.modified[i];
+        }
+    }
+
+
+    /**
+     * Gets the number of nodes modified by a rule.
+     *
+     * @param step the rule
+     * @return the number of nodes modified
+     */
+    long getModified(Step step) {
+        return modified[step.ordinal()];
+    }
+
+
+    /**
+     * Reports the counts of all rules.
+     *
+     * @param metrics the metrics to report to
+     */
+    void reportTo(ConversionMetrics metrics) {
+        for (Step step: Step.values()) {
+            reportTo(metrics, step);
+        }
+    }
+
+
+    /**
+     * Reports the counts of a single rule.
+     *
+     * @param metrics the metrics to report to
+     * @param step the rule
+     */
+    void reportTo(ConversionMetrics metrics, Step step) {
+        metrics.rule(step.name(), matched[step.ordinal()], modified[step.ordinal()]);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer.PackageExplorerConverter.Step;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.function.Consumer;
+
+
+/**
+ * Determines which conversion rules would modify a Package Explorer JSON document by reading its token stream once
+ * without writing any output.
+ *
+ * <p>Traverses the document the same way as {@link StreamingTransformer}, i.e. only small local subtrees are
+ * materialized, handed over to {@link TreeWalkingTransformer} and discarded afterwards. As there is no first pass,
+ * objects that need to be flattened when used as 'value' are recognized by their 'submodelElement' or 'langString'
+ * field while scanning them, and the asset kinds of the top-level 'assets' array are not collected as they do not
+ * affect which rules apply.
+ */
+class RuleScanner {
+
+    private static final Set<String> BUFFERED_FIELDS = Set.of(
+            TreeWalkingTransformer.CATEGORY,
+            TreeWalkingTransformer.DATA_TYPE,
+            TreeWalkingTransformer.EMBEDDED_DATA_SPECIFICATIONS,
+            TreeWalkingTransformer.ID_TYPE,
+            TreeWalkingTransformer.KEYS,
+            TreeWalkingTransformer.VALUE_TYPE);
+    private final JsonParser parser;
+    private final TreeWalkingTransformer treeTransformer = new TreeWalkingTransformer();
+    private final RewriteCounts counts = new RewriteCounts();
+
+    private RuleScanner(JsonParser parser) {
+        this.parser = parser;
+    }
+
+
+    /**
+     * Scans a Package Explorer JSON document.
+     *
+     * @param factory the factory used to create the parser; must have an ObjectCodec assigned
+     * @param input the input; not closed by this method
+     * @param metrics the metrics to report how often each rule would be applied and which warnings would occur to
+     * @throws IOException if reading the input fails
+     */
+    static void scan(JsonFactory factory, InputStream input, ConversionMetrics metrics) throws IOException {
+        try (JsonParser parser = factory.createParser(input)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            RuleScanner scanner = new RuleScanner(parser);
+            scanner.scan();
+            scanner.treeTransformer.reportTo(metrics);
+            scanner.counts.reportTo(metrics, Step.FLATTEN_OPERATION_VARIABLES);
+            scanner.counts.reportTo(metrics, Step.FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE);
+        }
+    }
+
+
+    private void scan() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            scanValue();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (TreeWalkingTransformer.ASSETS.equals(name)) {
+                parser.skipChildren();
+            }
+            else if (TreeWalkingTransformer.ASSET_ADMINISTRATION_SHELLS.equals(name) && valueToken == JsonToken.START_ARRAY) {
+                scanTopLevelElements(treeTransformer::transformShell);
+            }
+            else if (TreeWalkingTransformer.CONCEPT_DESCRIPTIONS.equals(name) && valueToken == JsonToken.START_ARRAY) {
+                scanTopLevelElements(treeTransformer::transformConceptDescription);
+            }
+            else {
+                scanField(name);
+            }
+        }
+    }
+
+
+    private void scanTopLevelElements(Consumer<ObjectNode> transformation) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                transformation.accept(parser.readValueAsTree());
+            }
+            else {
+                scanValue();
+            }
+        }
+    }
+
+
+    private void scanField(String name) throws IOException {
+        if (BUFFERED_FIELDS.contains(name)) {
+            treeTransformer.transformField(name, parser.readValueAsTree());
+            return;
+        }
+        if (TreeWalkingTransformer.VALUE.equals(name)) {
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                scanValueObject();
+                return;
+            }
+            if (parser.currentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == JsonToken.START_OBJECT) {
+                        scanValueObject();
+                    }
+                    else {
+                        scanValue();
+                    }
+                }
+                return;
+            }
+        }
+        scanValue();
+    }
+
+
+    /**
+     * Scans an object that is used as 'value' or as element of a 'value' array and counts it as flattened if it wraps
+     * an operation variable or the strings of a MultiLanguageProperty.
+     */
+    private void scanValueObject() throws IOException {
+        boolean operationVariable = false;
+        boolean multiLanguagePropertyValue = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            if (!operationVariable && TreeWalkingTransformer.SUBMODEL_ELEMENT.equals(name)) {
+                operationVariable = true;
+                counts.count(Step.FLATTEN_OPERATION_VARIABLES, true);
+            }
+            else if (!multiLanguagePropertyValue && TreeWalkingTransformer.LANG_STRING.equals(name)) {
+                multiLanguagePropertyValue = true;
+                counts.count(Step.FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE, true);
+            }
+            parser.nextToken();
+            scanField(name);
+        }
+    }
+
+
+    private void scanValue() throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT: {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    scanField(name);
+                }
+                break;
+            }
+            case START_ARRAY: {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    scanValue();
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+}
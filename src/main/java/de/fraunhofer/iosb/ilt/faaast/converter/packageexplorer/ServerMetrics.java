@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Arrays;
+
+
+/**
+ * Collects metrics of all conversions handled by a {@link ConversionServer}. Latency percentiles and recent throughput
+ * are computed from a sliding window of the most recent conversions. All methods are thread-safe.
+ */
+class ServerMetrics {
+
+    private static final int WINDOW_SIZE = 1024;
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+    private static final double[] PERCENTILES = {
+            50,
+            90,
+            95,
+            99
+    };
+    private final long start = System.nanoTime();
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private final long[] completions = new long[WINDOW_SIZE];
+    private final ConversionReport total = new ConversionReport(null);
+    private long succeeded;
+    private long failed;
+    private long rejected;
+
+    /**
+     * Records a completed conversion.
+     *
+     * @param report the report of the conversion
+     * @param durationNanos the total duration of the request in nanoseconds
+     */
+    synchronized void completed(ConversionReport report, long durationNanos) {
+        int index = (int) ((succeeded + failed) % WINDOW_SIZE);
+        latencies[index] = durationNanos;
+        completions[index] = System.nanoTime();
+        if (report.isSuccess()) {
+            succeeded++;
+        }
+        else {
+            failed++;
+        }
+        total.add(report);
+    }
+
+
+    /**
+     * Records a request that has been rejected because too many conversions were running or waiting.
+     */
+    synchronized void rejected() {
+        rejected++;
+    }
+
+
+    /**
+     * Creates the JSON representation of the metrics. Durations are given in milliseconds.
+     *
+     * @return the JSON representation
+     */
+    synchronized ObjectNode toJson() {
+        long now = System.nanoTime();
+        long count = succeeded + failed;
+        int samples = (int) Math.min(count, WINDOW_SIZE);
+        double uptime = (now - start) / NANOS_PER_SECOND;
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        result.put("uptime", (now - start) / NANOS_PER_MILLI);
+        result.putObject("conversions")
+                .put("total", count)
+                .put("succeeded", succeeded)
+                .put("failed", failed)
+                .put("rejected", rejected);
+        ObjectNode throughput = result.putObject("throughput");
+        throughput.put("conversionsPerSecond", count / uptime);
+        throughput.put("bytesReadPerSecond", total.getBytesRead() / uptime);
+        throughput.put("bytesWrittenPerSecond", total.getBytesWritten() / uptime);
+        if (samples > 1) {
+            long[] window = Arrays.copyOf(completions, samples);
+            Arrays.sort(window);
+            double span = (now - window[0]) / NANOS_PER_SECOND;
+            throughput.put("recentConversionsPerSecond", samples / span);
+        }
+        ObjectNode latency = result.putObject("latency");
+        latency.put("samples", samples);
+        if (samples > 0) {
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            for (double percentile: PERCENTILES) {
+                int rank = (int) Math.ceil(percentile / 100 * samples);
+                latency.put(String.format("p%d", (int) percentile), sorted[Math.max(rank, 1) - 1] / NANOS_PER_MILLI);
+            }
+            latency.put("max", sorted[samples - 1] / NANOS_PER_MILLI);
+        }
+        result.setAll(total.toJson());
+        return result;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import picocli.CommandLine;
+
+
+/**
+ * A slice of the input files selected by a stable hash of their path relative to the input directory. Independent
+ * processes using the same shard count and different shard indices convert disjoint sets of files that together cover
+ * all files.
+ */
+class Shard {
+
+    private final int index;
+    private final int count;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param index the index of the shard, starting at 1
+     * @param count the total number of shards
+     */
+    Shard(int index, int count) {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException(String.format("shard index must be between 1 and shard count (index: %d, count: %d)", index, count));
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+
+    /**
+     * Parses a shard in the format {@code <index>/<count>}, e.g. {@code 2/4}.
+     *
+     * @param value the value to parse
+     * @return the shard
+     * @throws IllegalArgumentException if the value is not a valid shard
+     */
+    static Shard parse(String value) {
+        String[] parts = value.split("/", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException(String.format("shard must be in the format <index>/<count> (value: %s)", value));
+        }
+        try {
+            return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("shard must be in the format <index>/<count> (value: %s)", value), e);
+        }
+    }
+
+
+    /**
+     * Checks whether a file belongs to this shard.
+     *
+     * @param relativePath the path of the file relative to the input directory using '/' as separator
+     * @return true if the file belongs to this shard, otherwise false
+     */
+    boolean contains(String relativePath) {
+        byte[] hash = Fingerprint.newDigest().digest(relativePath.getBytes(StandardCharsets.UTF_8));
+        return Long.remainderUnsigned(ByteBuffer.wrap(hash).getLong(), count) == index - 1;
+    }
+
+
+    /**
+     * Gets the name of this shard for use in file names, e.g. {@code 2-of-4}.
+     *
+     * @return the name of this shard
+     */
+    String getFileName() {
+        return index + "-of-" + count;
+    }
+
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+
+    /**
+     * Converts command line arguments to shards.
+     */
+    static class Converter implements CommandLine.ITypeConverter<Shard> {
+
+        @Override
+        public Shard convert(String value) {
+            try {
+                return parse(value);
+            }
+            catch (IllegalArgumentException e) {
+                throw new CommandLine.TypeConversionException(e.getMessage());
+            }
+        }
+    }
+}
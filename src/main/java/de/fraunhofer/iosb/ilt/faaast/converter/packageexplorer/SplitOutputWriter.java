@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.adminshell.aas.v3.dataformat.SerializationException;
+import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
+import io.adminshell.aas.v3.model.Identifiable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Writes each shell, submodel and concept description of an environment to its own file in a directory, together with
+ * an index file listing identifier, type, file and content hash of each identifiable.
+ *
+ * <p>File names only depend on type and identifier of an identifiable, i.e. the same identifiable is always written to
+ * the same file. If the directory already contains an index from a previous run, only files whose content has changed
+ * are written, files of identifiables that no longer exist are deleted, and the index itself is only rewritten if it
+ * has changed. Files not listed in the previous index are never deleted. If the previous index can not be read, all
+ * files are written.
+ */
+public class SplitOutputWriter {
+
+    /**
+     * Name of the index file.
+     */
+    public static final String INDEX_FILE_NAME = "index.json";
+    private static final String IDENTIFIABLES = "identifiables";
+    private static final String ID = "id";
+    private static final String TYPE = "type";
+    private static final String FILE = "file";
+    private static final String HASH = "hash";
+    private static final String FILE_EXTENSION = ".json";
+    private static final int FILE_NAME_HASH_LENGTH = 32;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final StreamingJsonSerializer serializer = new StreamingJsonSerializer();
+    private final File directory;
+    private Map<String, String> previous;
+    private Set<String> files;
+    private ArrayNode index;
+    private int written;
+    private int unchanged;
+    private int deleted;
+    private long bytesWritten;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param directory the directory to write to; created if it does not exist
+     */
+    public SplitOutputWriter(File directory) {
+        this.directory = directory;
+    }
+
+
+    /**
+     * Writes the identifiables of an environment to the directory.
+     *
+     * @param environment the environment
+     * @throws IOException if reading or writing files fails
+     * @throws SerializationException if serializing an identifiable fails
+     */
+    public void write(AssetAdministrationShellEnvironment environment) throws IOException, SerializationException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(String.format("directory could not be created (path: %s)", directory));
+        }
+        previous = readIndex();
+        files = new HashSet<>();
+        index = MAPPER.createArrayNode();
+        written = 0;
+        unchanged = 0;
+        deleted = 0;
+        bytesWritten = 0;
+        write(environment.getAssetAdministrationShells(), "AssetAdministrationShell", "shell");
+        write(environment.getSubmodels(), "Submodel", "submodel");
+        write(environment.getConceptDescriptions(), "ConceptDescription", "conceptDescription");
+        for (String file: previous.keySet()) {
+            if (!files.contains(file) && Files.deleteIfExists(directory.toPath().resolve(file))) {
+                deleted++;
+            }
+        }
+        ObjectNode root = MAPPER.createObjectNode();
+        root.set(IDENTIFIABLES, index);
+        writeIfChanged(INDEX_FILE_NAME, MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(root));
+    }
+
+
+    /**
+     * Gets the number of identifiables written by the last call to {@link #write(AssetAdministrationShellEnvironment)}.
+     *
+     * @return the number of identifiables written
+     */
+    public int getWritten() {
+        return written;
+    }
+
+
+    /**
+     * Gets the number of identifiables that have not been written by the last call to
+     * {@link #write(AssetAdministrationShellEnvironment)} because their content has not changed.
+     *
+     * @return the number of unchanged identifiables
+     */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+
+    /**
+     * Gets the number of files of identifiables that no longer exist deleted by the last call to
+     * {@link #write(AssetAdministrationShellEnvironment)}.
+     *
+     * @return the number of deleted files
+     */
+    public int getDeleted() {
+        return deleted;
+    }
+
+
+    /**
+     * Gets the number of bytes written by the last call to {@link #write(AssetAdministrationShellEnvironment)},
+     * including the index.
+     *
+     * @return the number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+
+    private void write(List<? extends Identifiable> identifiables, String type, String prefix) throws IOException, SerializationException {
+        for (Identifiable identifiable: identifiables) {
+            String id = identifiable.getIdentification().getIdentifier();
+            String file = fileName(prefix, id);
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            serializer.write(content, identifiable);
+            byte[] bytes = content.toByteArray();
+            MessageDigest digest = Fingerprint.newDigest();
+            digest.update(bytes);
+            String hash = Fingerprint.finish(digest);
+            if (hash.equals(previous.get(file)) && directory.toPath().resolve(file).toFile().length() == bytes.length) {
+                unchanged++;
+            }
+            else {
+                replace(file, bytes);
+                written++;
+            }
+            index.addObject()
+                    .put(ID, id)
+                    .put(TYPE, type)
+                    .put(FILE, file)
+                    .put(HASH, hash);
+        }
+    }
+
+
+    /**
+     * Derives the file name of an identifiable from its type and a hash of its identifier. Multiple identifiables with
+     * the same type and identifier, e.g. conflicting duplicates in a merge result, are numbered consecutively.
+     *
+     * @param prefix the prefix for the type of the identifiable
+     * @param id the identifier
+     * @return the file name
+     */
+    private String fileName(String prefix, String id) {
+        MessageDigest digest = Fingerprint.newDigest();
+        digest.update(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+        String base = prefix + "-" + Fingerprint.finish(digest).substring(0, FILE_NAME_HASH_LENGTH);
+        String result = base + FILE_EXTENSION;
+        for (int i = 2; !files.add(result); i++) {
+            result = base + "-" + i + FILE_EXTENSION;
+        }
+        return result;
+    }
+
+
+    private Map<String, String> readIndex() throws IOException {
+        Map<String, String> result = new HashMap<>();
+        File file = new File(directory, INDEX_FILE_NAME);
+        if (!file.isFile()) {
+            return result;
+        }
+        try {
+            for (JsonNode entry: MAPPER.readTree(file).path(IDENTIFIABLES)) {
+                String name = entry.path(FILE).asText();
+                // only accept plain file names so a modified index can not cause files outside the directory to be deleted
+                if (name.endsWith(FILE_EXTENSION) && new File(name).getName().equals(name)) {
+                    result.put(name, entry.path(HASH).asText());
+                }
+            }
+        }
+        catch (JsonProcessingException e) {
+            result.clear();
+        }
+        result.remove(INDEX_FILE_NAME);
+        return result;
+    }
+
+
+    private void writeIfChanged(String file, byte[] content) throws IOException {
+        Path path = directory.toPath().resolve(file);
+        if (Files.isRegularFile(path) && Files.size(path) == content.length && Arrays.equals(Files.readAllBytes(path), content)) {
+            return;
+        }
+        replace(file, content);
+    }
+
+
+    private void replace(String file, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(directory.toPath(), file, ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, directory.toPath().resolve(file), StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+        bytesWritten += content.length;
+    }
+}
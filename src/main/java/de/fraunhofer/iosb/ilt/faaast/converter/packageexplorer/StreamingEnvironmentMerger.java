@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Merges multiple environments in FA³ST JSON format into a single one without loading them into memory.
+ *
+ * <p>Identifiables are read one at a time and spilled to a temporary file while only their identifier, content
+ * fingerprint and location in the temporary file are kept in memory. The merged environment is then written by
+ * streaming the identifiables back from the temporary file. Merge result and reported duplicates are the same as with
+ * {@link EnvironmentMerger} except that identifiables are compared by their JSON content (ignoring property order)
+ * instead of their FA³ST model representation.
+ */
+public class StreamingEnvironmentMerger implements Closeable {
+
+    private static final String ASSET_ADMINISTRATION_SHELLS = "assetAdministrationShells";
+    private static final String SUBMODELS = "submodels";
+    private static final String CONCEPT_DESCRIPTIONS = "conceptDescriptions";
+    private static final String ID_POINTER = "/identification/id";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter FINGERPRINT_WRITER = MAPPER.writer().with(JsonNodeFeature.WRITE_PROPERTIES_SORTED);
+    private final Map<String, Integer> duplicateCounter = new HashMap<>();
+    private final Map<String, IdentifiableIndex<Location>> indexes = new LinkedHashMap<>();
+    private final File store;
+    private final OutputStream storeOutput;
+    private long storeSize;
+    private int count;
+
+    /**
+     * Creates a new instance using a temporary file in the default temporary-file directory.
+     *
+     * @throws IOException if the temporary file cannot be created
+     */
+    public StreamingEnvironmentMerger() throws IOException {
+        indexes.put(ASSET_ADMINISTRATION_SHELLS, new IdentifiableIndex<>(duplicateCounter));
+        indexes.put(SUBMODELS, new IdentifiableIndex<>(duplicateCounter));
+        indexes.put(CONCEPT_DESCRIPTIONS, new IdentifiableIndex<>(duplicateCounter));
+        store = Files.createTempFile("faaast-merge", ".json").toFile();
+        store.deleteOnExit();
+        storeOutput = new BufferedOutputStream(new FileOutputStream(store));
+    }
+
+
+    /**
+     * Adds an environment in FA³ST JSON format to the merge result.
+     *
+     * @param input the file to add
+     * @throws IOException if reading the input or writing to the temporary file fails, or if the input contains
+     *             identifiables without identifier
+     */
+    public void add(File input) throws IOException {
+        Map<String, List<IdentifiableIndex.Entry<Location>>> entries = new HashMap<>();
+        indexes.keySet().forEach(x -> entries.put(x, new ArrayList<>()));
+        try (JsonParser parser = MAPPER.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException(String.format("input is not a JSON object (file: %s)", input));
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                List<IdentifiableIndex.Entry<Location>> entriesOfType = entries.get(parser.getCurrentName());
+                if (parser.nextToken() != JsonToken.START_ARRAY || entriesOfType == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    entriesOfType.add(spill(parser.readValueAsTree(), input));
+                }
+            }
+        }
+        indexes.forEach((type, index) -> index.add(entries.get(type)));
+        count++;
+    }
+
+
+    /**
+     * Writes the merged environment of all environments added so far.
+     *
+     * @param output the output stream to write to; the stream is not closed
+     * @throws IOException if reading from the temporary file or writing to the output fails
+     */
+    public void write(OutputStream output) throws IOException {
+        storeOutput.flush();
+        try (RandomAccessFile storeInput = new RandomAccessFile(store, "r");
+                JsonGenerator generator = MAPPER.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            for (Map.Entry<String, IdentifiableIndex<Location>> index: indexes.entrySet()) {
+                generator.writeArrayFieldStart(index.getKey());
+                for (Location location: index.getValue().getElements()) {
+                    byte[] buffer = new byte[location.length];
+                    storeInput.seek(location.offset);
+                    storeInput.readFully(buffer);
+                    generator.writeTree(MAPPER.readTree(buffer));
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+
+    /**
+     * Gets the number of environments added.
+     *
+     * @return the number of environments added
+     */
+    public int getCount() {
+        return count;
+    }
+
+
+    /**
+     * Gets the identifiers of all elements that have been found with different content in multiple environments
+     * together with the number of conflicts found.
+     *
+     * @return mapping of identifiers to number of conflicts
+     */
+    public Map<String, Integer> getDuplicates() {
+        return duplicateCounter;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        try {
+            storeOutput.close();
+        }
+        finally {
+            Files.deleteIfExists(store.toPath());
+        }
+    }
+
+
+    private IdentifiableIndex.Entry<Location> spill(JsonNode identifiable, File input) throws IOException {
+        JsonNode id = identifiable.at(ID_POINTER);
+        if (!id.isTextual()) {
+            throw new IOException(String.format("found identifiable without identifier (file: %s)", input));
+        }
+        DigestOutputStream fingerprint = Fingerprint.newOutputStream();
+        FINGERPRINT_WRITER.writeValue(fingerprint, identifiable);
+        byte[] content = MAPPER.writeValueAsBytes(identifiable);
+        storeOutput.write(content);
+        Location location = new Location(storeSize, content.length);
+        storeSize += content.length;
+        return new IdentifiableIndex.Entry<>(id.asText(), Fingerprint.finish(fingerprint.getMessageDigest()), location);
+    }
+
+    private static class Location {
+
+        private final long offset;
+        private final int length;
+
+        private Location(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.adminshell.aas.v3.dataformat.SerializationException;
+import io.adminshell.aas.v3.dataformat.json.JsonSerializer;
+import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
+import io.adminshell.aas.v3.model.Referable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * FA³ST JSON serializer that writes directly to the output instead of creating the whole textual representation in
+ * memory first.
+ */
+public class StreamingJsonSerializer extends JsonSerializer {
+
+    @Override
+    public void write(OutputStream out, AssetAdministrationShellEnvironment aasEnvironment) throws IOException, SerializationException {
+        write(out, StandardCharsets.UTF_8, aasEnvironment);
+    }
+
+
+    @Override
+    public void write(OutputStream out, Charset charset, AssetAdministrationShellEnvironment aasEnvironment) throws IOException, SerializationException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset));
+        try {
+            mapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValue(writer, aasEnvironment);
+        }
+        catch (JsonProcessingException e) {
+            throw new SerializationException("error serializing AssetAdministrationShellEnvironment", e);
+        }
+        writer.flush();
+    }
+
+
+    /**
+     * Writes a single referable as UTF-8 encoded JSON.
+     *
+     * @param out the output stream
+     * @param referable the referable to write
+     * @throws IOException if writing to the output stream fails
+     * @throws SerializationException if serialization fails
+     */
+    public void write(OutputStream out, Referable referable) throws IOException, SerializationException {
+        try {
+            mapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValue(out, referable);
+        }
+        catch (JsonProcessingException e) {
+            throw new SerializationException("error serializing Referable", e);
+        }
+    }
+}
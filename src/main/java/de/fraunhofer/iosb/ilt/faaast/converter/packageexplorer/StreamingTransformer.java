@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Converts a Package Explorer JSON document by directly translating the token stream of a {@link JsonParser} to a
+ * {@link JsonGenerator}.
+ *
+ * <p>Only small local subtrees (e.g. a single 'keys' array, 'valueType' object, embeddedDataSpecification, or
+ * top-level shell or concept description) are materialized and handed over to {@link TreeWalkingTransformer}, so
+ * memory usage does not depend on the size of the input. As some transformations need information that is not yet
+ * available when the affected element is reached in the stream, the input is read twice. The first pass builds a
+ * small index containing the asset kinds of the top-level 'assets' array and the positions of all objects that need
+ * to be flattened when used as 'value'.
+ */
+class StreamingTransformer {
+
+    private static final Set<String> BUFFERED_FIELDS = Set.of(
+            TreeWalkingTransformer.CATEGORY,
+            TreeWalkingTransformer.DATA_TYPE,
+            TreeWalkingTransformer.EMBEDDED_DATA_SPECIFICATIONS,
+            TreeWalkingTransformer.ID_TYPE,
+            TreeWalkingTransformer.KEYS,
+            TreeWalkingTransformer.VALUE_TYPE);
+    private final JsonParser parser;
+    private final JsonGenerator generator;
+    private final TreeWalkingTransformer treeTransformer;
+    private final long[] wrapperOffsets;
+    private int wrapperCursor;
+
+    private StreamingTransformer(JsonParser parser, JsonGenerator generator, Index index, ChangeJournal.Recorder journal) {
+        this.parser = parser;
+        this.generator = generator;
+        this.treeTransformer = new TreeWalkingTransformer(index.assetKinds, journal);
+        this.wrapperOffsets = index.wrapperOffsets;
+    }
+
+
+    /**
+     * Converts a Package Explorer JSON document and writes the result to the given output stream.
+     *
+     * @param factory the factory used to create the parsers and the generator; must have an ObjectCodec assigned
+     * @param input the input; read twice
+     * @param output the output stream; not closed by this method
+     * @param metrics the metrics to report how often each rule has been applied to
+     * @param journal the journal to record changes in; may be null
+     * @throws IOException if reading the input or writing the output fails
+     */
+    static void transform(JsonFactory factory, ConversionInput input, OutputStream output, ConversionMetrics metrics, ChangeJournal.Recorder journal)
+            throws IOException {
+        Index index;
+        try (JsonParser parser = factory.createParser(input.open())) {
+            index = Index.build(parser);
+        }
+        try (JsonParser parser = factory.createParser(input.open());
+                JsonGenerator generator = factory.createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            StreamingTransformer transformer = new StreamingTransformer(parser, generator, index, journal);
+            transformer.transform();
+            transformer.treeTransformer.reportTo(metrics);
+        }
+    }
+
+
+    private void transform() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            streamValue();
+        }
+        else {
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                if (TreeWalkingTransformer.ASSETS.equals(name) && valueToken == JsonToken.START_ARRAY) {
+                    visitRemovedAssets();
+                }
+                else if (TreeWalkingTransformer.ASSETS.equals(name) && valueToken != JsonToken.VALUE_NULL) {
+                    parser.skipChildren();
+                }
+                else if (TreeWalkingTransformer.ASSET_ADMINISTRATION_SHELLS.equals(name) && valueToken == JsonToken.START_ARRAY) {
+                    generator.writeFieldName(name);
+                    streamTopLevelElements(x -> treeTransformer.transformShell(x));
+                }
+                else if (TreeWalkingTransformer.CONCEPT_DESCRIPTIONS.equals(name) && valueToken == JsonToken.START_ARRAY) {
+                    generator.writeFieldName(name);
+                    streamTopLevelElements(x -> treeTransformer.transformConceptDescription(x));
+                }
+                else {
+                    streamField(name);
+                }
+            }
+            generator.writeEndObject();
+        }
+        treeTransformer.logSummary();
+    }
+
+
+    private void streamTopLevelElements(UnaryOperator<ObjectNode> transformation) throws IOException {
+        generator.writeStartArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                setBasePointer(false);
+                generator.writeTree(transformation.apply(parser.readValueAsTree()));
+            }
+            else {
+                streamValue();
+            }
+        }
+        generator.writeEndArray();
+    }
+
+
+    private void visitRemovedAssets() throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            setBasePointer(false);
+            treeTransformer.visitRemovedAsset(parser.readValueAsTree());
+        }
+    }
+
+
+    private void streamField(String name) throws IOException {
+        if (BUFFERED_FIELDS.contains(name)) {
+            setBasePointer(true);
+            JsonNode value = treeTransformer.transformField(name, parser.readValueAsTree());
+            if (value != null) {
+                generator.writeFieldName(name);
+                generator.writeTree(value);
+            }
+            return;
+        }
+        if (TreeWalkingTransformer.VALUE.equals(name)) {
+            if (parser.currentToken() == JsonToken.START_OBJECT && isWrapper()) {
+                setBasePointer(true);
+                generator.writeFieldName(name);
+                generator.writeTree(treeTransformer.transformField(name, parser.readValueAsTree()));
+                return;
+            }
+            if (parser.currentToken() == JsonToken.START_ARRAY) {
+                generator.writeFieldName(name);
+                streamValueElements();
+                return;
+            }
+        }
+        generator.writeFieldName(name);
+        streamValue();
+    }
+
+
+    private void streamValueElements() throws IOException {
+        generator.writeStartArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.START_OBJECT && isWrapper()) {
+                setBasePointer(false);
+                generator.writeTree(treeTransformer.transformValueElement(parser.readValueAsTree()));
+            }
+            else {
+                streamValue();
+            }
+        }
+        generator.writeEndArray();
+    }
+
+
+    private void streamValue() throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT: {
+                generator.writeStartObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    streamField(name);
+                }
+                generator.writeEndObject();
+                break;
+            }
+            case START_ARRAY: {
+                generator.writeStartArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    streamValue();
+                }
+                generator.writeEndArray();
+                break;
+            }
+            default: {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+    }
+
+
+    /**
+     * Passes the location of the current value to the tree transformer when recording changes.
+     *
+     * @param parent whether to pass the location of the object containing the current value, e.g. because the tree
+     *            transformer is called for a field of the object
+     */
+    private void setBasePointer(boolean parent) {
+        if (treeTransformer.isJournaling()) {
+            JsonPointer pointer = parser.getParsingContext().pathAsPointer();
+            treeTransformer.setBasePointer((parent ? pointer.head() : pointer).toString());
+        }
+    }
+
+
+    private boolean isWrapper() {
+        long offset = offset(parser);
+        while (wrapperCursor < wrapperOffsets.length && wrapperOffsets[wrapperCursor] < offset) {
+            wrapperCursor++;
+        }
+        return wrapperCursor < wrapperOffsets.length && wrapperOffsets[wrapperCursor] == offset;
+    }
+
+
+    private static long offset(JsonParser parser) {
+        JsonLocation location = parser.currentTokenLocation();
+        return location.getByteOffset() >= 0
+                ? location.getByteOffset()
+                : location.getCharOffset();
+    }
+
+    /**
+     * Information about the document collected in a first pass.
+     */
+    private static class Index {
+
+        private Map<String, String> assetKinds = Map.of();
+        private long[] wrapperOffsets = new long[16];
+        private int wrapperCount;
+
+        private static Index build(JsonParser parser) throws IOException {
+            Index result = new Index();
+            long[] objectOffsets = new long[16];
+            boolean[] objectMarked = new boolean[16];
+            int depth = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case START_OBJECT: {
+                        if (depth == objectOffsets.length) {
+                            objectOffsets = Arrays.copyOf(objectOffsets, depth * 2);
+                            objectMarked = Arrays.copyOf(objectMarked, depth * 2);
+                        }
+                        objectOffsets[depth] = offset(parser);
+                        objectMarked[depth] = false;
+                        depth++;
+                        break;
+                    }
+                    case END_OBJECT: {
+                        depth--;
+                        break;
+                    }
+                    case FIELD_NAME: {
+                        String name = parser.currentName();
+                        if (parser.getParsingContext().getParent().inRoot() && TreeWalkingTransformer.ASSETS.equals(name)) {
+                            parser.nextToken();
+                            JsonNode assets = parser.readValueAsTree();
+                            if (assets != null && !assets.isNull()) {
+                                result.assetKinds = PackageExplorerConverter.indexAssetKinds(StreamSupport.stream(assets.spliterator(), false));
+                            }
+                        }
+                        else if (!objectMarked[depth - 1]
+                                && (TreeWalkingTransformer.SUBMODEL_ELEMENT.equals(name) || TreeWalkingTransformer.LANG_STRING.equals(name))) {
+                            objectMarked[depth - 1] = true;
+                            result.addWrapper(objectOffsets[depth - 1]);
+                        }
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+            result.wrapperOffsets = Arrays.copyOf(result.wrapperOffsets, result.wrapperCount);
+            Arrays.sort(result.wrapperOffsets);
+            return result;
+        }
+
+
+        private void addWrapper(long offset) {
+            if (wrapperCount == wrapperOffsets.length) {
+                wrapperOffsets = Arrays.copyOf(wrapperOffsets, wrapperCount * 2);
+            }
+            wrapperOffsets[wrapperCount++] = offset;
+        }
+    }
+}
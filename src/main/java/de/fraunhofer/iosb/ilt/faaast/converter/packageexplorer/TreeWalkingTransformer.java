@@ -0,0 +1,876 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer.PackageExplorerConverter.Step;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Applies all transformations of {@link PackageExplorerConverter} in a single depth-first pass over a Jackson tree.
+ *
+ * <p>The result is identical to running the individual JsonPath queries one after another. Rewrites that replace a
+ * value (e.g. flattening 'value' or 'valueType') are applied before descending into the resulting value, mirroring the
+ * pre-order evaluation of JsonPath deep scans. Rewrites that depend on the result of other rewrites within the same
+ * element (e.g. converting 'asset' to 'assetInformation') are applied after the element has been visited.
+ *
+ * <p>The transformer keeps track of the JSON pointer of the visited node so that changes can be recorded in a
+ * {@link ChangeJournal}.
+ *
+ * <p>Apart from converting 'asset' to 'assetInformation', which only needs the asset kinds collected from the top-level
+ * 'assets' array beforehand, all rewrites are local to a single shell, submodel or concept description. When a
+ * {@link ForkJoinPool} is given, the elements of the top-level 'assetAdministrationShells', 'submodels' and
+ * 'conceptDescriptions' arrays are therefore transformed in parallel. Elements are transformed in place, so their order
+ * is preserved, and counts and log output are merged in the order of the elements.
+ */
+class TreeWalkingTransformer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TreeWalkingTransformer.class);
+    static final String ASSET = "asset";
+    static final String ASSET_ADMINISTRATION_SHELLS = "assetAdministrationShells";
+    static final String ASSET_INFORMATION = "assetInformation";
+    static final String ASSETS = "assets";
+    static final String CATEGORY = "category";
+    static final String CONCEPT_DESCRIPTIONS = "conceptDescriptions";
+    static final String DATA_TYPE = "dataType";
+    static final String EMBEDDED_DATA_SPECIFICATIONS = "embeddedDataSpecifications";
+    static final String ID_TYPE = "idType";
+    static final String INDEX = "index";
+    static final String KEYS = "keys";
+    static final String LANG_STRING = "langString";
+    static final String LOCAL = "local";
+    static final String SUBMODEL_ELEMENT = "submodelElement";
+    static final String SUBMODELS = "submodels";
+    static final String VALUE = "value";
+    static final String VALUE_TYPE = "valueType";
+    static final String VIEWS = "views";
+    private static final String DATA_OBJECT_TYPE = "dataObjectType";
+    private static final int TASKS_PER_THREAD = 8;
+    private Map<String, String> assetKinds;
+    private final RewriteCounts counts = new RewriteCounts();
+    private long emptyKeysInRemovedElements;
+    private long invalidIdTypes;
+    private long missingDataTypes;
+    private Function<String, TextNode> textNodes = JsonNodeFactory.instance::textNode;
+    private final ChangeJournal.Recorder journal;
+    private final ForkJoinPool pool;
+    private String basePointer = "";
+    private String[] pathNames = new String[32];
+    private int[] pathIndices = new int[32];
+    private int pathDepth;
+
+    TreeWalkingTransformer() {
+        this(Map.of());
+    }
+
+
+    /**
+     * Creates a new instance using an already known mapping of asset identifiers to asset kinds, e.g. when the
+     * top-level 'assets' array is not part of the nodes to transform.
+     *
+     * @param assetKinds mapping of asset identifiers to asset kinds
+     */
+    TreeWalkingTransformer(Map<String, String> assetKinds) {
+        this(assetKinds, null);
+    }
+
+
+    /**
+     * Creates a new instance that records all changes.
+     *
+     * @param assetKinds mapping of asset identifiers to asset kinds
+     * @param journal the journal to record changes in; may be null
+     */
+    TreeWalkingTransformer(Map<String, String> assetKinds, ChangeJournal.Recorder journal) {
+        this(assetKinds, journal, null);
+    }
+
+
+    /**
+     * Creates a new instance that transforms the top-level shells, submodels and concept descriptions of a document in
+     * parallel. Changes can not be recorded when transforming in parallel.
+     *
+     * @param assetKinds mapping of asset identifiers to asset kinds
+     * @param journal the journal to record changes in; may be null
+     * @param pool the pool used to transform the elements; may be null to transform them sequentially; ignored if
+     *            changes are recorded
+     */
+    TreeWalkingTransformer(Map<String, String> assetKinds, ChangeJournal.Recorder journal, ForkJoinPool pool) {
+        this.assetKinds = assetKinds;
+        this.journal = journal;
+        this.pool = journal == null
+                ? pool
+                : null;
+    }
+
+
+    /**
+     * Whether changes are recorded in a journal.
+     *
+     * @return true if changes are recorded, otherwise false
+     */
+    boolean isJournaling() {
+        return journal != null;
+    }
+
+
+    /**
+     * Sets the JSON pointer of the node passed to the next call of one of the transform methods, e.g. when only parts
+     * of a document are transformed. Only used when recording changes.
+     *
+     * @param pointer the JSON pointer
+     */
+    void setBasePointer(String pointer) {
+        this.basePointer = pointer;
+    }
+
+
+    /**
+     * Transforms a Package Explorer JSON document.
+     *
+     * @param root the root node of the document; may be modified in place
+     * @return the transformed document
+     */
+    public JsonNode transform(JsonNode root) {
+        if (root.isContainerNode()) {
+            // create new values with the factory of the document, e.g. to share equal values
+            textNodes = ((ContainerNode<?>) root)::textNode;
+        }
+        if (!root.isObject()) {
+            visitNode(root, 0);
+            logSummary();
+            return root;
+        }
+        ObjectNode document = (ObjectNode) root;
+        JsonNode assets = document.get(ASSETS);
+        if (assets != null && !assets.isNull()) {
+            assetKinds = PackageExplorerConverter.indexAssetKinds(StreamSupport.stream(assets.spliterator(), false));
+            push(ASSETS);
+            for (int i = 0; i < assets.size(); i++) {
+                push(i);
+                visitRemovedAsset(assets.get(i));
+                pop();
+            }
+            pop();
+            document.remove(ASSETS);
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = document.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            push(field.getKey());
+            JsonNode value = transformDocumentField(field.getKey(), field.getValue());
+            pop();
+            if (value == null) {
+                fields.remove();
+            }
+            else if (value != field.getValue()) {
+                field.setValue(value);
+            }
+        }
+        logSummary();
+        return document;
+    }
+
+
+    private JsonNode transformDocumentField(String name, JsonNode value) {
+        switch (name) {
+            case ASSET_ADMINISTRATION_SHELLS: {
+                forEachElement(value, TreeWalkingTransformer::transformShell);
+                return value;
+            }
+            case SUBMODELS: {
+                forEachElement(value, TreeWalkingTransformer::transformSubmodel);
+                return value;
+            }
+            case CONCEPT_DESCRIPTIONS: {
+                forEachElement(value, TreeWalkingTransformer::transformConceptDescription);
+                return value;
+            }
+            default: {
+                return visitField(name, value, 0, 0);
+            }
+        }
+    }
+
+
+    private void forEachElement(JsonNode node, BiConsumer<TreeWalkingTransformer, ObjectNode> transformation) {
+        if (!node.isArray()) {
+            visitNode(node, 0);
+            return;
+        }
+        if (pool != null && node.size() > 1) {
+            forEachElementParallel((ArrayNode) node, transformation);
+            return;
+        }
+        int index = 0;
+        for (JsonNode element: node) {
+            push(index++);
+            transformElement(element, transformation);
+            pop();
+        }
+    }
+
+
+    private void transformElement(JsonNode element, BiConsumer<TreeWalkingTransformer, ObjectNode> transformation) {
+        if (element.isObject()) {
+            transformation.accept(this, (ObjectNode) element);
+        }
+        else {
+            visitNode(element, 0);
+        }
+    }
+
+
+    /**
+     * Splits the elements of an array into contiguous ranges and transforms each range in a separate task using a
+     * transformer of its own. Log output of each task is buffered and written in the order of the ranges, so it is the
+     * same as when transforming the elements sequentially.
+     *
+     * @param array the array
+     * @param transformation the transformation to apply to each element
+     */
+    private void forEachElementParallel(ArrayNode array, BiConsumer<TreeWalkingTransformer, ObjectNode> transformation) {
+        int rangeSize = Math.max(1, array.size() / (pool.getParallelism() * TASKS_PER_THREAD));
+        List<Callable<LogBuffer.Captured<TreeWalkingTransformer>>> tasks = new ArrayList<>();
+        for (int start = 0; start < array.size(); start += rangeSize) {
+            int from = start;
+            int to = Math.min(start + rangeSize, array.size());
+            tasks.add(() -> LogBuffer.capture(() -> {
+                TreeWalkingTransformer transformer = new TreeWalkingTransformer(assetKinds);
+                transformer.textNodes = textNodes;
+                for (int i = from; i < to; i++) {
+                    transformer.transformElement(array.get(i), transformation);
+                }
+                return transformer;
+            }));
+        }
+        for (Future<LogBuffer.Captured<TreeWalkingTransformer>> future: pool.invokeAll(tasks)) {
+            LogBuffer.Captured<TreeWalkingTransformer> result = join(future);
+            result.flush();
+            if (result.getError() instanceof RuntimeException) {
+                throw (RuntimeException) result.getError();
+            }
+            if (result.getError() != null) {
+                throw new IllegalStateException("error transforming element", result.getError());
+            }
+            counts.add(result.getValue().counts);
+            emptyKeysInRemovedElements += result.getValue().emptyKeysInRemovedElements;
+            invalidIdTypes += result.getValue().invalidIdTypes;
+            missingDataTypes += result.getValue().missingDataTypes;
+        }
+    }
+
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while transforming elements", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("error transforming element", e.getCause());
+        }
+    }
+
+
+    /**
+     * Transforms a single element of the top-level 'assetAdministrationShells' array.
+     *
+     * @param shell the shell; modified in place
+     * @return the transformed shell
+     */
+    ObjectNode transformShell(ObjectNode shell) {
+        removeViews(shell);
+        visitNode(shell, 0);
+        transformAsset(shell);
+        return shell;
+    }
+
+
+    /**
+     * Transforms a single element of the top-level 'submodels' array.
+     *
+     * @param submodel the submodel; modified in place
+     * @return the transformed submodel
+     */
+    ObjectNode transformSubmodel(ObjectNode submodel) {
+        visitNode(submodel, 0);
+        return submodel;
+    }
+
+
+    /**
+     * Transforms a single element of the top-level 'conceptDescriptions' array.
+     *
+     * @param conceptDescription the concept description; modified in place
+     * @return the transformed concept description
+     */
+    ObjectNode transformConceptDescription(ObjectNode conceptDescription) {
+        visitNode(conceptDescription, 0);
+        addMissingEmbeddedDataSpecificationType(conceptDescription);
+        return conceptDescription;
+    }
+
+
+    /**
+     * Transforms the value of a field that is not contained in an embeddedDataSpecification.
+     *
+     * @param name the name of the field
+     * @param value the value of the field; may be modified in place
+     * @return the new value of the field or null if the field should be removed
+     */
+    JsonNode transformField(String name, JsonNode value) {
+        push(name);
+        JsonNode result = visitField(name, value, 0, 0);
+        pop();
+        return result;
+    }
+
+
+    /**
+     * Transforms a single element of an array that is the value of a field named 'value'.
+     *
+     * @param element the element; may be modified in place
+     * @return the transformed element
+     */
+    JsonNode transformValueElement(JsonNode element) {
+        JsonNode result = flattenOperationVariables(element);
+        if (result.isObject()) {
+            result = flattenMultiLanguagePropertyValue(result);
+        }
+        visitNode(result, 0);
+        return result;
+    }
+
+
+    private void removeViews(ObjectNode shell) {
+        JsonNode views = shell.get(VIEWS);
+        if (views != null) {
+            // keys are processed before views are removed, same as with ConversionEngine.JSON_PATH
+            push(VIEWS);
+            visitRemoved(views, false);
+            pop();
+            shell.remove(VIEWS);
+            counts.count(Step.REMOVE_VIEWS, true);
+            record(Step.REMOVE_VIEWS, views, null, VIEWS);
+        }
+    }
+
+
+    /**
+     * Applies the rules to an element of the top-level 'assets' array before it is removed, so that the rules are
+     * counted the same way as with {@link ConversionEngine#JSON_PATH}, which transforms the whole document before
+     * removing the assets.
+     *
+     * @param asset the element of the top-level 'assets' array
+     */
+    void visitRemovedAsset(JsonNode asset) {
+        visitRemoved(asset, true);
+    }
+
+
+    private void visitRemoved(JsonNode node, boolean capitalizeEnumValues) {
+        long emptyKeys = counts.getModified(Step.REMOVE_EMPTY_KEYS);
+        visitRemovedNode(node, capitalizeEnumValues);
+        // empty keys of removed elements do not render the result invalid
+        emptyKeysInRemovedElements += counts.getModified(Step.REMOVE_EMPTY_KEYS) - emptyKeys;
+    }
+
+
+    private void visitRemovedNode(JsonNode node, boolean capitalizeEnumValues) {
+        if (node.isArray()) {
+            for (int i = 0; i < node.size(); i++) {
+                push(i);
+                visitRemovedNode(node.get(i), capitalizeEnumValues);
+                pop();
+            }
+        }
+        else if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                push(field.getKey());
+                if (KEYS.equals(field.getKey())) {
+                    value = removeEmptyKeys(value);
+                    if (value != null) {
+                        removeKeyIndexAndLocal(value);
+                    }
+                }
+                else if (capitalizeEnumValues && ID_TYPE.equals(field.getKey()) && !value.isNull()) {
+                    value = capitalizeEnumValue(value, PackageExplorerConverter.transformIdType(asText(value)));
+                }
+                else if (capitalizeEnumValues && CATEGORY.equals(field.getKey()) && !value.isNull()) {
+                    value = capitalizeEnumValue(value, PackageExplorerConverter.transformCategory(asText(value)));
+                }
+                if (value == null) {
+                    fields.remove();
+                }
+                else {
+                    if (value != field.getValue()) {
+                        field.setValue(value);
+                    }
+                    visitRemovedNode(value, capitalizeEnumValues);
+                }
+                pop();
+            }
+        }
+    }
+
+
+    private void transformAsset(ObjectNode shell) {
+        JsonNode asset = shell.get(ASSET);
+        if (asset != null) {
+            PackageExplorerConverter.toAssetInformation(shell, assetKinds);
+            counts.count(Step.TRANSFORM_ASSETS, true);
+            record(Step.TRANSFORM_ASSETS, asset, shell.get(ASSET_INFORMATION), ASSET);
+        }
+    }
+
+
+    private void addMissingEmbeddedDataSpecificationType(ObjectNode conceptDescription) {
+        if (conceptDescription.has(EMBEDDED_DATA_SPECIFICATIONS)) {
+            ArrayNode embeddedDataSpecifications = (ArrayNode) conceptDescription.get(EMBEDDED_DATA_SPECIFICATIONS);
+            counts.count(Step.ADD_MISSING_EMBEDDED_DATA_SPECIFICATION_TYPE,
+                    embeddedDataSpecifications.size(),
+                    PackageExplorerConverter.addMissingEmbeddedDataSpecificationType(embeddedDataSpecifications,
+                            (pointer, key) -> record(Step.ADD_MISSING_EMBEDDED_DATA_SPECIFICATION_TYPE, null, key, EMBEDDED_DATA_SPECIFICATIONS, pointer)));
+        }
+    }
+
+
+    /**
+     * Visits all children of a node.
+     *
+     * @param node the node to visit
+     * @param edsDepth the number of embeddedDataSpecifications elements containing the node (including itself)
+     */
+    private void visitNode(JsonNode node, int edsDepth) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                push(field.getKey());
+                JsonNode value = visitField(field.getKey(), field.getValue(), edsDepth, edsDepth);
+                pop();
+                if (value == null) {
+                    fields.remove();
+                }
+                else if (value != field.getValue()) {
+                    field.setValue(value);
+                }
+            }
+        }
+        else if (node.isArray()) {
+            visitElements((ArrayNode) node, edsDepth);
+        }
+    }
+
+
+    private void visitElements(ArrayNode array, int edsDepth) {
+        for (int i = 0; i < array.size(); i++) {
+            push(i);
+            visitNode(array.get(i), edsDepth);
+            pop();
+        }
+    }
+
+
+    /**
+     * Applies all applicable transformations to the value of a field and visits the (transformed) value.
+     *
+     * @param name the name of the field
+     * @param value the value of the field
+     * @param edsDepth the number of embeddedDataSpecifications elements containing the field
+     * @param childEdsDepth the number of embeddedDataSpecifications elements containing the value
+     * @return the new value of the field or null if the field should be removed
+     */
+    private JsonNode visitField(String name, JsonNode value, int edsDepth, int childEdsDepth) {
+        switch (name) {
+            case KEYS: {
+                JsonNode result = removeEmptyKeys(value);
+                if (result != null) {
+                    removeKeyIndexAndLocal(result);
+                    visitNode(result, childEdsDepth);
+                }
+                return result;
+            }
+            case ID_TYPE: {
+                return value.isNull()
+                        ? value
+                        : transformIdType(value);
+            }
+            case CATEGORY: {
+                return value.isNull()
+                        ? value
+                        : capitalizeEnumValue(value, PackageExplorerConverter.transformCategory(asText(value)));
+            }
+            case DATA_TYPE: {
+                visitNode(value, childEdsDepth);
+                return fixDataType(value, edsDepth);
+            }
+            case VALUE_TYPE: {
+                JsonNode result = flattenValueType(value);
+                visitNode(result, childEdsDepth);
+                return result;
+            }
+            case VALUE: {
+                JsonNode result = flattenMultiLanguagePropertyValue(flattenOperationVariables(value));
+                visitNode(result, childEdsDepth);
+                return result;
+            }
+            case EMBEDDED_DATA_SPECIFICATIONS: {
+                visitEmbeddedDataSpecifications(value, childEdsDepth);
+                return value;
+            }
+            default: {
+                visitNode(value, childEdsDepth);
+                return value;
+            }
+        }
+    }
+
+
+    private void visitEmbeddedDataSpecifications(JsonNode node, int edsDepth) {
+        if (node.isArray()) {
+            visitElements((ArrayNode) node, edsDepth + 1);
+        }
+        else if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                push(field.getKey());
+                JsonNode value = visitField(field.getKey(), field.getValue(), edsDepth, edsDepth + 1);
+                pop();
+                if (value == null) {
+                    fields.remove();
+                }
+                else if (value != field.getValue()) {
+                    field.setValue(value);
+                }
+            }
+        }
+    }
+
+
+    private JsonNode removeEmptyKeys(JsonNode keys) {
+        if (keys.isObject()) {
+            if (PackageExplorerConverter.isEmptyKey(keys)) {
+                counts.count(Step.REMOVE_EMPTY_KEYS, true);
+                record(Step.REMOVE_EMPTY_KEYS, keys, null);
+                return null;
+            }
+        }
+        else if (keys.isArray()) {
+            Iterator<JsonNode> iterator = keys.elements();
+            int index = 0;
+            while (iterator.hasNext()) {
+                JsonNode key = iterator.next();
+                if (key.isObject() && PackageExplorerConverter.isEmptyKey(key)) {
+                    counts.count(Step.REMOVE_EMPTY_KEYS, true);
+                    record(Step.REMOVE_EMPTY_KEYS, key, null, index);
+                    iterator.remove();
+                }
+                else {
+                    index++;
+                }
+            }
+        }
+        return keys;
+    }
+
+
+    private JsonNode capitalizeEnumValue(JsonNode node, String result) {
+        boolean modified = !node.isTextual() || !node.textValue().equals(result);
+        counts.count(Step.CAPITALIZE_ENUM_VALUES, modified);
+        if (!modified) {
+            return node;
+        }
+        JsonNode value = textNodes.apply(result);
+        record(Step.CAPITALIZE_ENUM_VALUES, node, value);
+        return value;
+    }
+
+
+    private JsonNode transformIdType(JsonNode node) {
+        String idType = asText(node);
+        if (!PackageExplorerConverter.isValidIdType(idType)) {
+            invalidIdTypes++;
+        }
+        return capitalizeEnumValue(node, PackageExplorerConverter.transformIdType(idType));
+    }
+
+
+    private void removeKeyIndexAndLocal(JsonNode keys) {
+        if (keys.isArray()) {
+            for (int i = 0; i < keys.size(); i++) {
+                if (keys.get(i).isObject()) {
+                    push(i);
+                    removeKeyIndexAndLocal((ObjectNode) keys.get(i));
+                    pop();
+                }
+            }
+        }
+        else if (keys.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = keys.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (field.getValue().isObject()) {
+                    push(field.getKey());
+                    removeKeyIndexAndLocal((ObjectNode) field.getValue());
+                    pop();
+                }
+            }
+        }
+    }
+
+
+    private void removeKeyIndexAndLocal(ObjectNode key) {
+        JsonNode index = key.remove(INDEX);
+        if (index != null) {
+            counts.count(Step.REMOVE_KEY_INDEX, true);
+            record(Step.REMOVE_KEY_INDEX, index, null, INDEX);
+        }
+        JsonNode local = key.remove(LOCAL);
+        if (local != null) {
+            counts.count(Step.REMOVE_KEY_LOCAL, true);
+            record(Step.REMOVE_KEY_LOCAL, local, null, LOCAL);
+        }
+    }
+
+
+    private JsonNode fixDataType(JsonNode node, int edsDepth) {
+        if (edsDepth == 0 || node.isNull()) {
+            return node;
+        }
+        String result = asText(node);
+        if (PackageExplorerConverter.isMissingDataType(result)) {
+            missingDataTypes++;
+        }
+        for (int i = 0; i < edsDepth; i++) {
+            result = PackageExplorerConverter.fixDataType(result);
+        }
+        boolean modified = !node.isTextual() || !node.textValue().equals(result);
+        counts.count(Step.FIX_EMBEDDED_DATA_SPECIFICATION_DATA_TYPE, modified);
+        if (!modified) {
+            return node;
+        }
+        JsonNode value = textNodes.apply(result);
+        record(Step.FIX_EMBEDDED_DATA_SPECIFICATION_DATA_TYPE, node, value);
+        return value;
+    }
+
+
+    private JsonNode flattenValueType(JsonNode node) {
+        if (node.isObject()) {
+            if (node.has(DATA_OBJECT_TYPE)) {
+                counts.count(Step.FLATTEN_VALUE_TYPE, true);
+                JsonNode result = PackageExplorerConverter.flattenValueType((ObjectNode) node);
+                record(Step.FLATTEN_VALUE_TYPE, node, result);
+                return result;
+            }
+        }
+        else if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                if (array.get(i).has(DATA_OBJECT_TYPE)) {
+                    counts.count(Step.FLATTEN_VALUE_TYPE, true);
+                    JsonNode element = array.get(i);
+                    array.set(i, PackageExplorerConverter.flattenValueType((ObjectNode) element));
+                    record(Step.FLATTEN_VALUE_TYPE, element, array.get(i), i);
+                }
+            }
+        }
+        return node;
+    }
+
+
+    private JsonNode flattenOperationVariables(JsonNode node) {
+        if (node.isObject()) {
+            if (node.has(SUBMODEL_ELEMENT)) {
+                counts.count(Step.FLATTEN_OPERATION_VARIABLES, true);
+                JsonNode result = PackageExplorerConverter.flattenOperationVariable((ObjectNode) node);
+                record(Step.FLATTEN_OPERATION_VARIABLES, node, result);
+                return result;
+            }
+        }
+        else if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                if (array.get(i).has(SUBMODEL_ELEMENT)) {
+                    counts.count(Step.FLATTEN_OPERATION_VARIABLES, true);
+                    JsonNode element = array.get(i);
+                    array.set(i, PackageExplorerConverter.flattenOperationVariable((ObjectNode) element));
+                    record(Step.FLATTEN_OPERATION_VARIABLES, element, array.get(i), i);
+                }
+            }
+        }
+        return node;
+    }
+
+
+    private JsonNode flattenMultiLanguagePropertyValue(JsonNode node) {
+        if (node.isObject()) {
+            if (node.has(LANG_STRING)) {
+                counts.count(Step.FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE, true);
+                JsonNode result = PackageExplorerConverter.flattenMultiLanguagePropertyValue((ObjectNode) node);
+                record(Step.FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE, node, result);
+                return result;
+            }
+        }
+        else if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                if (array.get(i).has(LANG_STRING)) {
+                    counts.count(Step.FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE, true);
+                    JsonNode element = array.get(i);
+                    array.set(i, PackageExplorerConverter.flattenMultiLanguagePropertyValue((ObjectNode) element));
+                    record(Step.FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE, element, array.get(i), i);
+                }
+            }
+        }
+        return node;
+    }
+
+
+    private void push(String name) {
+        ensurePathCapacity();
+        pathNames[pathDepth++] = name;
+    }
+
+
+    private void push(int index) {
+        ensurePathCapacity();
+        pathNames[pathDepth] = null;
+        pathIndices[pathDepth++] = index;
+    }
+
+
+    private void pop() {
+        pathDepth--;
+    }
+
+
+    private void ensurePathCapacity() {
+        if (pathDepth == pathNames.length) {
+            pathNames = Arrays.copyOf(pathNames, pathDepth * 2);
+            pathIndices = Arrays.copyOf(pathIndices, pathDepth * 2);
+        }
+    }
+
+
+    /**
+     * Records a change of the current node or one of its descendants if changes are recorded.
+     *
+     * @param step the rule
+     * @param before the value before the change; null if the node has been added
+     * @param after the value after the change; null if the node has been removed
+     * @param children path from the current node to the changed node; each element is a field name, an array index or
+     *            a JSON pointer starting with '/'
+     */
+    private void record(Step step, JsonNode before, JsonNode after, Object... children) {
+        if (journal == null || !journal.accepts(step)) {
+            return;
+        }
+        StringBuilder pointer = new StringBuilder(basePointer);
+        for (int i = 0; i < pathDepth; i++) {
+            appendSegment(pointer, pathNames[i] != null ? pathNames[i] : pathIndices[i]);
+        }
+        for (Object child: children) {
+            if (child instanceof String && ((String) child).startsWith("/")) {
+                pointer.append(child);
+            }
+            else {
+                appendSegment(pointer, child);
+            }
+        }
+        journal.record(step, pointer.toString(), before, after);
+    }
+
+
+    private static void appendSegment(StringBuilder pointer, Object segment) {
+        pointer.append('/').append(segment.toString().replace("~", "~0").replace("/", "~1"));
+    }
+
+
+    /**
+     * Returns the string representation of a node the same way JsonPath hands values to map functions, i.e. scalar
+     * values are unwrapped while objects and arrays are serialized.
+     *
+     * @param node the node
+     * @return the string representation
+     */
+    static String asText(JsonNode node) {
+        return node.isValueNode()
+                ? node.asText()
+                : node.toString();
+    }
+
+
+    /**
+     * Reports how often each rule has been applied and how often information has been removed or replaced with a
+     * default value.
+     *
+     * @param metrics the metrics to report to
+     */
+    void reportTo(ConversionMetrics metrics) {
+        counts.reportTo(metrics);
+        metrics.warning(ConversionMetrics.WARNING_EMPTY_KEY, counts.getModified(Step.REMOVE_EMPTY_KEYS) - emptyKeysInRemovedElements);
+        metrics.warning(ConversionMetrics.WARNING_INVALID_ID_TYPE, invalidIdTypes);
+        metrics.warning(ConversionMetrics.WARNING_MISSING_DATA_TYPE, missingDataTypes);
+    }
+
+
+    void logSummary() {
+        if (!LOGGER.isDebugEnabled()) {
+            return;
+        }
+        if (counts.getModified(Step.REMOVE_EMPTY_KEYS) > 0) {
+            LOGGER.debug("Found {} keys with empty type, value, and/or idType. These keys have been removed which may render enclosing element (e.g. a reference) invalid.",
+                    counts.getModified(Step.REMOVE_EMPTY_KEYS));
+        }
+        LOGGER.debug("Removed {} key.index (because package explorer-specific)", counts.getModified(Step.REMOVE_KEY_INDEX));
+        LOGGER.debug("Removed {} key.local (because removed in AAS v3.0)", counts.getModified(Step.REMOVE_KEY_LOCAL));
+        LOGGER.debug("Removed {} views (because removed in AAS v3.0)", counts.getModified(Step.REMOVE_VIEWS));
+        LOGGER.debug("Flattened {} valueType structures (because package explorer-specific)", counts.getModified(Step.FLATTEN_VALUE_TYPE));
+        LOGGER.debug("Flattened {} operation variable structures (because package explorer-specific)", counts.getModified(Step.FLATTEN_OPERATION_VARIABLES));
+        LOGGER.debug("Flattened {} MultiLanguageProperty.value structures (because package explorer-specific)",
+                counts.getModified(Step.FLATTEN_MULTI_LANGUAGE_PROPERTY_VALUE));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import io.adminshell.aas.v3.dataformat.core.ReflectionHelper;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+
+
+/**
+ * Registers the AAS model classes for reflection when building a native image.
+ *
+ * <p>The FA³ST serializer binds JSON to the interfaces, default implementations, enums and Jackson mixins of the AAS
+ * model, which are discovered via classpath scanning by {@link ReflectionHelper}. As {@link ReflectionHelper} is
+ * initialized at build time (see {@code native-image.properties}), the result of that scan is available here and
+ * no list of model classes has to be maintained by hand. Classes referenced by Jackson annotations of these types, e.g.
+ * custom serializers and subtypes, are registered as well.
+ */
+public class AasModelReflectionFeature implements Feature {
+
+    private final Set<Class<?>> registered = new HashSet<>();
+
+    @Override
+    public String getDescription() {
+        return "Registers the AAS model classes for reflection";
+    }
+
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        ReflectionHelper.INTERFACES.forEach(this::register);
+        ReflectionHelper.DEFAULT_IMPLEMENTATIONS.forEach(x -> {
+            register(x.getInterfaceType());
+            register(x.getImplementationType());
+        });
+        ReflectionHelper.ENUMS.forEach(this::register);
+        ReflectionHelper.JSON_MIXINS.forEach((type, mixin) -> {
+            register(type);
+            register(mixin);
+        });
+    }
+
+
+    private void register(Class<?> type) {
+        if (type == null || type == Object.class || type.isPrimitive() || type.isArray() || !registered.add(type)) {
+            return;
+        }
+        RuntimeReflection.register(type);
+        RuntimeReflection.register(type.getDeclaredConstructors());
+        RuntimeReflection.register(type.getDeclaredMethods());
+        RuntimeReflection.register(type.getDeclaredFields());
+        registerReferencedTypes(type);
+        for (Method method: type.getDeclaredMethods()) {
+            registerReferencedTypes(method);
+        }
+        for (AnnotatedElement field: type.getDeclaredFields()) {
+            registerReferencedTypes(field);
+        }
+        register(type.getSuperclass());
+    }
+
+
+    private void registerReferencedTypes(AnnotatedElement element) {
+        for (Annotation annotation: element.getDeclaredAnnotations()) {
+            registerReferencedTypes(annotation);
+        }
+    }
+
+
+    private void registerReferencedTypes(Annotation annotation) {
+        for (Method attribute: annotation.annotationType().getDeclaredMethods()) {
+            Object value;
+            try {
+                value = attribute.invoke(annotation);
+            }
+            catch (IllegalAccessException | InvocationTargetException e) {
+                continue;
+            }
+            if (value instanceof Class) {
+                register((Class<?>) value);
+            }
+            else if (value instanceof Class[]) {
+                for (Class<?> type: (Class<?>[]) value) {
+                    register(type);
+                }
+            }
+            else if (value instanceof Annotation) {
+                registerReferencedTypes((Annotation) value);
+            }
+            else if (value instanceof Annotation[]) {
+                for (Annotation nested: (Annotation[]) value) {
+                    registerReferencedTypes(nested);
+                }
+            }
+        }
+    }
+}
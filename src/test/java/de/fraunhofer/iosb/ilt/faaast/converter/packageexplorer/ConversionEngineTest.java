@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+
+/**
+ * Tests that all conversion engines and the streaming mode produce byte-identical output, using the legacy
+ * {@link ConversionEngine#JSON_PATH} engine as reference.
+ */
+public class ConversionEngineTest {
+
+    private static final String PACKAGE_EXPLORER_EXPORT = "package-explorer-export.json";
+    private static final int SEEDS = 10;
+    private static final int PARALLELISM = 4;
+
+    @Test
+    public void testPackageExplorerExport() throws IOException {
+        try (InputStream input = ConversionEngineTest.class.getClassLoader().getResourceAsStream(PACKAGE_EXPLORER_EXPORT)) {
+            assertSameOutput(input.readAllBytes());
+        }
+    }
+
+
+    @Test
+    public void testSyntheticDocuments() throws IOException {
+        for (long seed = 0; seed < SEEDS; seed++) {
+            assertSameOutput(new SyntheticDocumentGenerator(3, 2, 25, 10, seed).toBytes());
+        }
+    }
+
+
+    private static void assertSameOutput(byte[] document) throws IOException {
+        String expected = convert(document, PackageExplorerConverter.getDefault(ConversionEngine.JSON_PATH));
+        assertEquals("engine SINGLE_PASS", expected, convert(document, PackageExplorerConverter.getDefault(ConversionEngine.SINGLE_PASS)));
+        try (PackageExplorerConverter converter = PackageExplorerConverter.builder()
+                .engine(ConversionEngine.SINGLE_PASS)
+                .parallelism(PARALLELISM)
+                .build()) {
+            assertEquals("engine SINGLE_PASS with parallelism " + PARALLELISM, expected, convert(document, converter));
+        }
+        assertEquals("streaming", expected, convertStreaming(document, ConversionMetrics.NONE));
+        assertSameRuleCounts(document);
+    }
+
+
+    private static void assertSameRuleCounts(byte[] document) throws IOException {
+        JsonNode expected = ruleCounts(document, PackageExplorerConverter.getDefault(ConversionEngine.JSON_PATH));
+        assertEquals("rule counts of engine SINGLE_PASS", expected, ruleCounts(document, PackageExplorerConverter.getDefault(ConversionEngine.SINGLE_PASS)));
+        ConversionReport report = new ConversionReport(null);
+        convertStreaming(document, report);
+        assertEquals("rule counts of streaming", expected, report.toJson().get("rules"));
+    }
+
+
+    private static JsonNode ruleCounts(byte[] document, PackageExplorerConverter converter) throws IOException {
+        ConversionReport report = new ConversionReport(null);
+        converter.convert(new ObjectMapper().readTree(document), report);
+        return report.toJson().get("rules");
+    }
+
+
+    private static String convert(byte[] document, PackageExplorerConverter converter) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        converter.convert(new ByteArrayInputStream(document), output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+
+    private static String convertStreaming(byte[] document, ConversionMetrics metrics) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ConversionInput input = ConversionInput.spool(new ByteArrayInputStream(document))) {
+            PackageExplorerConverter.toFaaast(input, output, metrics);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
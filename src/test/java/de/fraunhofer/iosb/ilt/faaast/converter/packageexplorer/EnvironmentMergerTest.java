@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import static org.junit.Assert.assertEquals;
+
+import io.adminshell.aas.v3.dataformat.json.JsonDeserializer;
+import io.adminshell.aas.v3.dataformat.json.JsonSerializer;
+import io.adminshell.aas.v3.model.AssetAdministrationShellEnvironment;
+import io.adminshell.aas.v3.model.Identifiable;
+import io.adminshell.aas.v3.model.Identifier;
+import io.adminshell.aas.v3.model.IdentifierType;
+import io.adminshell.aas.v3.model.impl.DefaultAssetAdministrationShell;
+import io.adminshell.aas.v3.model.impl.DefaultAssetAdministrationShellEnvironment;
+import io.adminshell.aas.v3.model.impl.DefaultConceptDescription;
+import io.adminshell.aas.v3.model.impl.DefaultIdentifier;
+import io.adminshell.aas.v3.model.impl.DefaultSubmodel;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Compares merge result and reported duplicates of {@link EnvironmentMerger} and {@link StreamingEnvironmentMerger}
+ * with the pairwise reduction used before merging was based on an index.
+ */
+public class EnvironmentMergerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testConflictAfterIdenticalElements() throws Exception {
+        assertSameAsReduce(List.of(List.of("x:1"), List.of("x:1"), List.of("x:2")));
+    }
+
+
+    @Test
+    public void testIdenticalElementsInFirstEnvironment() throws Exception {
+        assertSameAsReduce(List.of(List.of("x:1", "x:1", "y:1"), List.of("x:2", "y:1"), List.of("x:1")));
+    }
+
+
+    @Test
+    public void testConflictingElementsInSameEnvironment() throws Exception {
+        assertSameAsReduce(List.of(List.of("x:1"), List.of("x:2", "x:3"), List.of("x:2"), List.of("y:1", "x:1")));
+    }
+
+
+    @Test
+    public void testAlternatingContent() throws Exception {
+        assertSameAsReduce(List.of(List.of("x:1", "y:1"), List.of("x:2", "y:2"), List.of("x:1", "y:1"), List.of("x:2", "y:2"), List.of("x:1", "y:2")));
+    }
+
+
+    @Test
+    public void testDistinctIdentifiers() throws Exception {
+        assertSameAsReduce(List.of(List.of("a:1"), List.of("b:1", "c:1"), List.of("a:1", "d:1")));
+    }
+
+
+    /**
+     * Merges environments described by lists of {@code <id>:<content>} and compares the result with the pairwise
+     * reduction. Each description creates a shell, a submodel and a concept description.
+     *
+     * @param descriptions descriptions of the environments
+     */
+    private void assertSameAsReduce(List<List<String>> descriptions) throws Exception {
+        List<AssetAdministrationShellEnvironment> environments = descriptions.stream()
+                .map(EnvironmentMergerTest::environment)
+                .collect(Collectors.toList());
+        Map<String, Integer> expectedDuplicates = new HashMap<>();
+        AssetAdministrationShellEnvironment expected = environments.stream().reduce((a, b) -> merge(a, b, expectedDuplicates)).get();
+        EnvironmentMerger merger = new EnvironmentMerger();
+        environments.forEach(merger::add);
+        AssetAdministrationShellEnvironment actual = merger.build();
+        assertEquals(expectedDuplicates, merger.getDuplicates());
+        assertEquals(expected.getAssetAdministrationShells(), actual.getAssetAdministrationShells());
+        assertEquals(expected.getSubmodels(), actual.getSubmodels());
+        assertEquals(expected.getConceptDescriptions(), actual.getConceptDescriptions());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (StreamingEnvironmentMerger streamingMerger = new StreamingEnvironmentMerger()) {
+            for (AssetAdministrationShellEnvironment environment: environments) {
+                File file = temporaryFolder.newFile();
+                new JsonSerializer().write(file, environment);
+                streamingMerger.add(file);
+            }
+            streamingMerger.write(output);
+            assertEquals(expectedDuplicates, streamingMerger.getDuplicates());
+        }
+        AssetAdministrationShellEnvironment streamed = new JsonDeserializer().read(output.toString(StandardCharsets.UTF_8));
+        assertEquals(describe(expected.getAssetAdministrationShells()), describe(streamed.getAssetAdministrationShells()));
+        assertEquals(describe(expected.getSubmodels()), describe(streamed.getSubmodels()));
+        assertEquals(describe(expected.getConceptDescriptions()), describe(streamed.getConceptDescriptions()));
+    }
+
+
+    private static List<String> describe(List<? extends Identifiable> identifiables) {
+        return identifiables.stream()
+                .map(x -> x.getIdentification().getIdentifier() + ":" + x.getIdShort())
+                .collect(Collectors.toList());
+    }
+
+
+    private static AssetAdministrationShellEnvironment environment(List<String> description) {
+        DefaultAssetAdministrationShellEnvironment.Builder builder = new DefaultAssetAdministrationShellEnvironment.Builder();
+        for (String element: description) {
+            String id = element.split(":")[0];
+            String content = element.split(":")[1];
+            builder.assetAdministrationShell(new DefaultAssetAdministrationShell.Builder()
+                    .identification(identifier("https://example.com/aas/" + id))
+                    .idShort("shell" + content)
+                    .build());
+            builder.submodel(new DefaultSubmodel.Builder()
+                    .identification(identifier("https://example.com/sm/" + id))
+                    .idShort("submodel" + content)
+                    .build());
+            builder.conceptDescription(new DefaultConceptDescription.Builder()
+                    .identification(identifier("https://example.com/cd/" + id))
+                    .idShort("conceptDescription" + content)
+                    .build());
+        }
+        return builder.build();
+    }
+
+
+    private static Identifier identifier(String id) {
+        return new DefaultIdentifier.Builder()
+                .identifier(id)
+                .idType(IdentifierType.IRI)
+                .build();
+    }
+
+
+    private static <T, U> List<T> merge(List<T> coll1, List<T> coll2, Function<T, U> idExtractor, Map<U, Integer> duplicateCounter) {
+        coll1.forEach(a -> {
+            U id = idExtractor.apply(a);
+            Optional<T> duplicate = coll2.stream()
+                    .filter(b -> Objects.equals(id, idExtractor.apply(b)))
+                    .findFirst();
+            if (duplicate.isPresent() && !Objects.equals(a, duplicate.get())) {
+                duplicateCounter.merge(id, 1, Integer::sum);
+            }
+        });
+        return Stream.concat(coll1.stream(), coll2.stream()).distinct().collect(Collectors.toList());
+    }
+
+
+    private static AssetAdministrationShellEnvironment merge(AssetAdministrationShellEnvironment aas1, AssetAdministrationShellEnvironment aas2,
+                                                             Map<String, Integer> duplicateCounter) {
+        return new DefaultAssetAdministrationShellEnvironment.Builder()
+                .assetAdministrationShells(
+                        merge(aas1.getAssetAdministrationShells(), aas2.getAssetAdministrationShells(), x -> x.getIdentification().getIdentifier(), duplicateCounter))
+                .conceptDescriptions(merge(aas1.getConceptDescriptions(), aas2.getConceptDescriptions(), x -> x.getIdentification().getIdentifier(), duplicateCounter))
+                .submodels(merge(aas1.getSubmodels(), aas2.getSubmodels(), x -> x.getIdentification().getIdentifier(), duplicateCounter))
+                .build();
+    }
+}
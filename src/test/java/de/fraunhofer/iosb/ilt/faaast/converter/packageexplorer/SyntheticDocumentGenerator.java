@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.converter.packageexplorer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+
+/**
+ * Generates synthetic AAS environments in Package Explorer JSON format.
+ *
+ * <p>The generated documents contain all Package Explorer-specific structures handled by the converter, i.e. top-level
+ * assets and asset references, keys with index and local, views, valueType with dataObjectType, MultiLanguageProperty
+ * values with langString, operation variables wrapped in submodelElement, and embeddedDataSpecifications with
+ * non-standard dataType values and missing type information. The output only depends on the given counts and seed and
+ * is written in a streaming fashion so arbitrarily large documents can be generated.
+ *
+ * <p>Identifiers only depend on the counts, so documents generated with different seeds contain the same identifiables
+ * with different content, e.g. to benchmark merging with conflicts.
+ */
+public class SyntheticDocumentGenerator {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final String[] CATEGORIES = {
+            "CONSTANT",
+            "PARAMETER",
+            "VARIABLE"
+    };
+    private static final String[] DATA_OBJECT_TYPES = {
+            "string",
+            "int",
+            "double",
+            "boolean",
+            "dateTime"
+    };
+    private static final String[] DATA_SPECIFICATION_DATA_TYPES = {
+            "STRING",
+            "REAL_MEASURE",
+            "INTEGER_COUNT",
+            "\"STRING_TRANSLATABLE\"",
+            ""
+    };
+    private static final String[] ID_TYPES = {
+            "IRI",
+            "IRDI",
+            "Custom",
+            "idShort"
+    };
+    private static final String[] LANGUAGES = {
+            "en",
+            "de"
+    };
+    private final int shells;
+    private final int submodelsPerShell;
+    private final int elementsPerSubmodel;
+    private final int conceptDescriptions;
+    private final long seed;
+    private Random random;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param shells number of asset administration shells (and assets)
+     * @param submodelsPerShell number of submodels per shell
+     * @param elementsPerSubmodel number of submodel elements per submodel
+     * @param conceptDescriptions number of concept descriptions
+     * @param seed seed for generating values
+     */
+    public SyntheticDocumentGenerator(int shells, int submodelsPerShell, int elementsPerSubmodel, int conceptDescriptions, long seed) {
+        this.shells = shells;
+        this.submodelsPerShell = submodelsPerShell;
+        this.elementsPerSubmodel = elementsPerSubmodel;
+        this.conceptDescriptions = conceptDescriptions;
+        this.seed = seed;
+    }
+
+
+    /**
+     * Generates a document with the given counts and writes it to a file.
+     *
+     * <p>Usage: {@code <output file> <shells> <submodelsPerShell> <elementsPerSubmodel> <conceptDescriptions> [seed]}
+     *
+     * @param args command line arguments
+     * @throws IOException if writing the file fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("Usage: <output file> <shells> <submodelsPerShell> <elementsPerSubmodel> <conceptDescriptions> [seed]");
+            System.exit(1);
+        }
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(
+                Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]),
+                Integer.parseInt(args[4]),
+                args.length > 5 ? Long.parseLong(args[5]) : 0);
+        generator.write(new File(args[0]));
+    }
+
+
+    /**
+     * Generates the document and returns it as bytes.
+     *
+     * @return the document
+     * @throws IOException if generating fails
+     */
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        write(result);
+        return result.toByteArray();
+    }
+
+
+    /**
+     * Generates the document and writes it to a file.
+     *
+     * @param file the file
+     * @throws IOException if writing the file fails
+     */
+    public void write(File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(out);
+        }
+    }
+
+
+    /**
+     * Generates the document and writes it to an output stream.
+     *
+     * @param out the output stream; the stream is not closed
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        random = new Random(seed);
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("assetAdministrationShells");
+            for (int i = 0; i < shells; i++) {
+                writeShell(generator, i);
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("assets");
+            for (int i = 0; i < shells; i++) {
+                writeAsset(generator, i);
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("submodels");
+            for (int i = 0; i < shells; i++) {
+                for (int j = 0; j < submodelsPerShell; j++) {
+                    writeSubmodel(generator, i, j);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("conceptDescriptions");
+            for (int i = 0; i < conceptDescriptions; i++) {
+                writeConceptDescription(generator, i);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+
+    private void writeShell(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("asset");
+        writeReference(generator, "Asset", assetId(index));
+        generator.writeArrayFieldStart("submodels");
+        for (int i = 0; i < submodelsPerShell; i++) {
+            writeReference(generator, "Submodel", submodelId(index, i));
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("views");
+        generator.writeStartObject();
+        generator.writeStringField("idShort", "View" + index);
+        generator.writeFieldName("containedElements");
+        writeReference(generator, "Submodel", submodelId(index, 0));
+        writeModelType(generator, "View");
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("conceptDictionaries");
+        generator.writeEndArray();
+        writeIdentification(generator, "IRI", shellId(index));
+        generator.writeStringField("idShort", "Shell" + index);
+        writeModelType(generator, "AssetAdministrationShell");
+        generator.writeEndObject();
+    }
+
+
+    private void writeAsset(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        writeIdentification(generator, "IRI", assetId(index));
+        generator.writeStringField("idShort", "Asset" + index);
+        generator.writeStringField("kind", random.nextBoolean() ? "Instance" : "Type");
+        writeModelType(generator, "Asset");
+        generator.writeEndObject();
+    }
+
+
+    private void writeSubmodel(JsonGenerator generator, int shell, int index) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("semanticId");
+        writeReference(generator, "GlobalReference", "urn:synthetic:semantic:submodel:" + index);
+        generator.writeArrayFieldStart("qualifiers");
+        generator.writeEndArray();
+        writeIdentification(generator, ID_TYPES[index % ID_TYPES.length], submodelId(shell, index));
+        generator.writeStringField("idShort", "Submodel" + index);
+        writeModelType(generator, "Submodel");
+        generator.writeStringField("kind", "Instance");
+        generator.writeArrayFieldStart("submodelElements");
+        for (int i = 0; i < elementsPerSubmodel; i++) {
+            writeSubmodelElement(generator, i);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+
+    private void writeSubmodelElement(JsonGenerator generator, int index) throws IOException {
+        switch (index % 5) {
+            case 0:
+            case 1:
+                writeProperty(generator, index);
+                break;
+            case 2:
+                writeMultiLanguageProperty(generator, index);
+                break;
+            case 3:
+                writeOperation(generator, index);
+                break;
+            default:
+                writeSubmodelElementCollection(generator, index);
+                break;
+        }
+    }
+
+
+    private void writeProperty(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("value", Integer.toString(random.nextInt(1000)));
+        generator.writeNullField("valueId");
+        writeSubmodelElementHeader(generator, index, "Property");
+        generator.writeObjectFieldStart("valueType");
+        generator.writeObjectFieldStart("dataObjectType");
+        generator.writeStringField("name", DATA_OBJECT_TYPES[random.nextInt(DATA_OBJECT_TYPES.length)]);
+        generator.writeEndObject();
+        generator.writeEndObject();
+        if (index % 2 == 0) {
+            generator.writeArrayFieldStart("embeddedDataSpecifications");
+            writeEmbeddedDataSpecification(generator, index);
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+
+    private void writeMultiLanguageProperty(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("value");
+        generator.writeArrayFieldStart("langString");
+        for (String language: LANGUAGES) {
+            generator.writeStartObject();
+            generator.writeStringField("language", language);
+            generator.writeStringField("text", "Text " + random.nextInt(1000));
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        writeSubmodelElementHeader(generator, index, "MultiLanguageProperty");
+        generator.writeEndObject();
+    }
+
+
+    private void writeOperation(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        writeSubmodelElementHeader(generator, index, "Operation");
+        for (String variables: new String[] {
+                "inputVariable",
+                "outputVariable",
+                "inoutputVariable"
+        }) {
+            generator.writeArrayFieldStart(variables);
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("value");
+            generator.writeFieldName("submodelElement");
+            writeProperty(generator, index);
+            generator.writeEndObject();
+            writeModelType(generator, "OperationVariable");
+            generator.writeEndObject();
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+
+    private void writeSubmodelElementCollection(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("value");
+        writeProperty(generator, index);
+        writeMultiLanguageProperty(generator, index + 1);
+        generator.writeEndArray();
+        generator.writeBooleanField("ordered", false);
+        generator.writeBooleanField("allowDuplicates", false);
+        writeSubmodelElementHeader(generator, index, "SubmodelElementCollection");
+        generator.writeEndObject();
+    }
+
+
+    private void writeSubmodelElementHeader(JsonGenerator generator, int index, String modelType) throws IOException {
+        generator.writeFieldName("semanticId");
+        writeReference(generator, "ConceptDescription", conceptDescriptionId(index));
+        generator.writeArrayFieldStart("constraints");
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("hasDataSpecification");
+        generator.writeEndArray();
+        generator.writeStringField("idShort", modelType + index);
+        generator.writeStringField("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        writeModelType(generator, modelType);
+        generator.writeStringField("kind", "Instance");
+    }
+
+
+    private void writeConceptDescription(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        writeIdentification(generator, "IRDI", conceptDescriptionId(index));
+        generator.writeStringField("idShort", "ConceptDescription" + index);
+        writeModelType(generator, "ConceptDescription");
+        generator.writeArrayFieldStart("embeddedDataSpecifications");
+        writeEmbeddedDataSpecification(generator, index);
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("isCaseOf");
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+
+    private void writeEmbeddedDataSpecification(JsonGenerator generator, int index) throws IOException {
+        generator.writeStartObject();
+        if (index % 3 != 0) {
+            generator.writeFieldName("dataSpecification");
+            writeReference(generator, "GlobalReference", "http://admin-shell.io/DataSpecificationTemplates/DataSpecificationIEC61360/2/0");
+        }
+        generator.writeObjectFieldStart("dataSpecificationContent");
+        generator.writeArrayFieldStart("preferredName");
+        generator.writeStartObject();
+        generator.writeStringField("language", "EN");
+        generator.writeStringField("text", "Name " + index);
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("shortName");
+        generator.writeEndArray();
+        generator.writeStringField("unit", "");
+        generator.writeFieldName("unitId");
+        writeReference(generator, "GlobalReference", "");
+        generator.writeStringField("sourceOfDefinition", "");
+        generator.writeStringField("dataType", DATA_SPECIFICATION_DATA_TYPES[random.nextInt(DATA_SPECIFICATION_DATA_TYPES.length)]);
+        generator.writeArrayFieldStart("definition");
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+
+    private void writeReference(JsonGenerator generator, String type, String value) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("keys");
+        generator.writeStartObject();
+        generator.writeStringField("type", type);
+        generator.writeBooleanField("local", !type.equals("GlobalReference"));
+        generator.writeStringField("value", value);
+        generator.writeNumberField("index", 0);
+        generator.writeStringField("idType", value.startsWith("urn:") || value.startsWith("http") ? "IRI" : "IRDI");
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+
+    private static void writeIdentification(JsonGenerator generator, String idType, String id) throws IOException {
+        generator.writeObjectFieldStart("identification");
+        generator.writeStringField("idType", idType);
+        generator.writeStringField("id", id);
+        generator.writeEndObject();
+    }
+
+
+    private static void writeModelType(JsonGenerator generator, String name) throws IOException {
+        generator.writeObjectFieldStart("modelType");
+        generator.writeStringField("name", name);
+        generator.writeEndObject();
+    }
+
+
+    private static String shellId(int index) {
+        return "urn:synthetic:aas:" + index;
+    }
+
+
+    private static String assetId(int index) {
+        return "urn:synthetic:asset:" + index;
+    }
+
+
+    private static String submodelId(int shell, int index) {
+        return "urn:synthetic:submodel:" + shell + ":" + index;
+    }
+
+
+    private static String conceptDescriptionId(int index) {
+        return "0173-1#02-SYN" + index + "#001";
+    }
+}